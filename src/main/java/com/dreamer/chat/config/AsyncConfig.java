@@ -1,16 +1,33 @@
 package com.dreamer.chat.config;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * 异步配置类
  * 配置异步任务执行器
  * 
+ * <p>
+ * 开启 spring.threads.virtual.enabled 后（需要Java 21），所有执行器改为每任务一个虚拟线程，
+ * Tomcat请求处理也由Spring Boot切换为虚拟线程，同步调用模型和JDBC时的阻塞代价很低。
+ * </p>
+ * 
  * @author panshenguo
  * @since 1.0.0
  */
@@ -18,35 +35,146 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 @EnableAsync
 public class AsyncConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${app.chat.stream-executor.core-size:16}")
+    private int streamCoreSize;
+
+    @Value("${app.chat.stream-executor.max-size:64}")
+    private int streamMaxSize;
+
+    @Value("${app.chat.stream-executor.queue-capacity:500}")
+    private int streamQueueCapacity;
+
     /**
      * 配置异步任务执行器
      */
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(MeterRegistry meterRegistry) {
+        if (virtualThreadsEnabled) {
+            return virtualThreadExecutor("async-task-vt-", "async.task.executor", meterRegistry);
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
-        // 核心线程数 - 适应流式处理需求
+        // 核心线程数
         executor.setCorePoolSize(10);
 
-        // 最大线程数 - 支持更多并发流式连接
+        // 最大线程数
         executor.setMaxPoolSize(50);
 
         // 队列容量 - 增加队列容量应对突发请求
         executor.setQueueCapacity(200);
 
         // 线程名前缀
-        executor.setThreadNamePrefix("stream-chat-");
+        executor.setThreadNamePrefix("async-task-");
 
         // 拒绝策略：由调用线程处理该任务
-        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
 
         // 等待所有任务结束后再关闭线程池
         executor.setWaitForTasksToCompleteOnShutdown(true);
 
-        // 等待时间 - 给流式处理更多时间完成
+        // 等待时间
         executor.setAwaitTerminationSeconds(60);
 
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * 配置流式聊天专用执行器
+     * 
+     * <p>
+     * 聊天链路中的所有阶段（数据库读写、提示词构建、持久化AI回复）都在此线程池中执行，
+     * 不再落到ForkJoin公共池。队列有界，队列满时直接拒绝并计数，而不是让Tomcat线程代为执行。
+     * 活跃线程数、排队数和拒绝数通过Actuator的metrics端点暴露。
+     * </p>
+     * 
+     * @param meterRegistry 指标注册表
+     * @return 流式聊天执行器
+     */
+    @Bean(name = "streamChatExecutor")
+    public AsyncTaskExecutor streamChatExecutor(MeterRegistry meterRegistry) {
+        if (virtualThreadsEnabled) {
+            return virtualThreadExecutor("stream-chat-vt-", "chat.stream.executor", meterRegistry);
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamCoreSize);
+        executor.setMaxPoolSize(streamMaxSize);
+        executor.setQueueCapacity(streamQueueCapacity);
+        executor.setThreadNamePrefix("stream-chat-");
+
+        // 拒绝策略：计数后抛出异常，由调用方向客户端返回繁忙错误
+        Counter rejectedCounter = Counter.builder("chat.stream.executor.rejected")
+                .description("流式聊天执行器拒绝的任务数")
+                .register(meterRegistry);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejectedCounter.increment();
+            log.warn("流式聊天执行器已满: active={}, queued={}", pool.getActiveCount(), pool.getQueue().size());
+            throw new RejectedExecutionException("流式聊天执行器已满");
+        });
+
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        Gauge.builder("chat.stream.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("流式聊天执行器活跃线程数")
+                .register(meterRegistry);
+        Gauge.builder("chat.stream.executor.queued", executor,
+                e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("流式聊天执行器排队任务数")
+                .register(meterRegistry);
+        Gauge.builder("chat.stream.executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .description("流式聊天执行器当前线程数")
+                .register(meterRegistry);
+
+        return executor;
+    }
+
+    /**
+     * 创建每任务一个虚拟线程的执行器
+     * 
+     * <p>
+     * 虚拟线程执行器没有队列也不会拒绝任务，queued和rejected指标恒为0，
+     * 保持与线程池模式相同的指标名便于对比。
+     * </p>
+     * 
+     * @param threadNamePrefix 线程名前缀
+     * @param metricPrefix     指标名前缀
+     * @param meterRegistry    指标注册表
+     * @return 虚拟线程执行器
+     */
+    private SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix, String metricPrefix,
+            MeterRegistry meterRegistry) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(60000L);
+
+        AtomicInteger activeCount = new AtomicInteger();
+        executor.setTaskDecorator(task -> () -> {
+            activeCount.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                activeCount.decrementAndGet();
+            }
+        });
+
+        Gauge.builder(metricPrefix + ".active", activeCount, AtomicInteger::get)
+                .description("虚拟线程执行器运行中的任务数")
+                .register(meterRegistry);
+        Gauge.builder(metricPrefix + ".queued", () -> 0)
+                .register(meterRegistry);
+        Counter.builder(metricPrefix + ".rejected")
+                .register(meterRegistry);
+
+        log.info("使用虚拟线程执行器: {}", threadNamePrefix);
+        return executor;
+    }
+}
@@ -0,0 +1,16 @@
+package com.dreamer.chat.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置类
+ * 开启 {@code @Scheduled} 支持（如已删除对话的定期清理）
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
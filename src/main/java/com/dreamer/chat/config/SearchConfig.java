@@ -0,0 +1,58 @@
+package com.dreamer.chat.config;
+
+import java.sql.DatabaseMetaData;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import com.dreamer.chat.repository.ConversationSearchRepository;
+import com.dreamer.chat.repository.MessageSearchRepository;
+import com.dreamer.chat.repository.PostgresConversationSearchRepository;
+import com.dreamer.chat.repository.PostgresMessageSearchRepository;
+import com.dreamer.chat.repository.SqliteConversationSearchRepository;
+import com.dreamer.chat.repository.SqliteMessageSearchRepository;
+
+/**
+ * 全文检索配置类
+ * 按数据源的数据库类型选择检索实现：默认环境为PostgreSQL（tsvector、pg_trgm），dev环境为SQLite（FTS5）
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Configuration
+public class SearchConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchConfig.class);
+
+    @Bean
+    public MessageSearchRepository messageSearchRepository(DataSource dataSource,
+            NamedParameterJdbcTemplate jdbcTemplate) throws MetaDataAccessException {
+        if (isSqlite(dataSource)) {
+            log.info("消息检索使用SQLite FTS5");
+            return new SqliteMessageSearchRepository(jdbcTemplate);
+        }
+        log.info("消息检索使用PostgreSQL全文索引");
+        return new PostgresMessageSearchRepository(jdbcTemplate);
+    }
+
+    @Bean
+    public ConversationSearchRepository conversationSearchRepository(DataSource dataSource,
+            NamedParameterJdbcTemplate jdbcTemplate) throws MetaDataAccessException {
+        if (isSqlite(dataSource)) {
+            return new SqliteConversationSearchRepository(jdbcTemplate);
+        }
+        return new PostgresConversationSearchRepository(jdbcTemplate);
+    }
+
+    private boolean isSqlite(DataSource dataSource) throws MetaDataAccessException {
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        return "SQLite".equalsIgnoreCase(product);
+    }
+}
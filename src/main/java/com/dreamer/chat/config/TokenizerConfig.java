@@ -0,0 +1,56 @@
+package com.dreamer.chat.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StringUtils;
+
+import com.dreamer.chat.tokenizer.BpeTokenizer;
+import com.dreamer.chat.tokenizer.EstimatingTokenizer;
+import com.dreamer.chat.tokenizer.Tokenizer;
+
+/**
+ * 分词器配置类
+ * 配置了 app.chat.tokenizer.vocabulary 且词表存在时使用BPE分词器，否则按字符类别估算
+ * 
+ * <p>
+ * 项目不附带词表：各模型提供商的词表不同且多数未公开，附带某一家的词表对其他提供商同样只是近似。
+ * 默认使用估算分词器，历史消息预算按 app.chat.tokenizer.estimate-margin-percent 预留估算误差。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Configuration
+public class TokenizerConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenizerConfig.class);
+
+    @Bean
+    public Tokenizer tokenizer(ResourceLoader resourceLoader,
+            @Value("${app.chat.tokenizer.vocabulary:}") String vocabulary) throws IOException {
+        if (!StringUtils.hasText(vocabulary)) {
+            log.info("未配置分词词表，按字符类别估算Token数");
+            return new EstimatingTokenizer();
+        }
+
+        Resource resource = resourceLoader.getResource(vocabulary);
+        if (!resource.exists()) {
+            log.warn("分词词表不存在，按字符类别估算Token数: {}", vocabulary);
+            return new EstimatingTokenizer();
+        }
+
+        try (InputStream input = resource.getInputStream()) {
+            BpeTokenizer tokenizer = BpeTokenizer.load(input);
+            log.info("已加载BPE分词词表: {}", vocabulary);
+            return tokenizer;
+        }
+    }
+}
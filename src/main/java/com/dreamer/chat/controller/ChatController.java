@@ -12,9 +12,12 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.dreamer.chat.dto.ChatRequest;
 import com.dreamer.chat.dto.ChatResponse;
-import com.dreamer.chat.entity.Message;
+import com.dreamer.chat.dto.MessageImportRequest;
+import com.dreamer.chat.dto.MessagePage;
 import com.dreamer.chat.service.ChatService;
 import com.dreamer.chat.service.StreamChatService;
+import com.dreamer.chat.stream.ManagedSseEmitter;
+import com.dreamer.chat.stream.SseHeartbeatWheel;
 
 import jakarta.validation.Valid;
 
@@ -38,6 +41,9 @@ public class ChatController {
     @Autowired
     private StreamChatService streamChatService;
 
+    @Autowired
+    private SseHeartbeatWheel heartbeatWheel;
+
     /**
      * 发送聊天消息（流式输出）
      * 支持新建对话和继续现有对话
@@ -51,12 +57,10 @@ public class ChatController {
                 request.getConversationId(), request.getModelProvider(),
                 request.getMessage() != null ? request.getMessage().length() : 0);
 
-        SseEmitter emitter = new SseEmitter(120000L); // 120秒超时，适应AI生成时间
+        // 不设固定超时，由心跳时间轮发送心跳并按空闲时间判断超时
+        SseEmitter emitter = newManagedEmitter();
 
-        // 设置SSE连接事件处理器
-        emitter.onCompletion(() -> log.debug("SSE连接正常完成: conversationId={}", request.getConversationId()));
-        emitter.onTimeout(() -> log.warn("SSE连接超时: conversationId={}", request.getConversationId()));
-        emitter.onError(throwable -> log.error("SSE连接发生错误: conversationId={}", request.getConversationId(), throwable));
+        // SSE连接的完成/超时/错误回调由流式服务统一注册，用于断线续传和取消上游生成
 
         // 使用新的流式聊天服务异步处理
         streamChatService.processStreamChatAsync(request, emitter)
@@ -77,6 +81,49 @@ public class ChatController {
         return emitter;
     }
 
+    /**
+     * 流式输出断线续传
+     * 重放 Last-Event-ID 之后错过的事件，并接入仍在进行的生成
+     * 
+     * @param streamId          流ID（start事件中返回）
+     * @param lastEventIdHeader 浏览器EventSource自动携带的Last-Event-ID请求头
+     * @param lastEventIdParam  无法设置请求头的客户端可通过参数传递
+     * @return 流式响应
+     */
+    @GetMapping(value = "/stream/{streamId}/resume", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter resumeStream(
+            @PathVariable String streamId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) Long lastEventIdParam) {
+
+        long lastEventId = lastEventIdHeader != null ? lastEventIdHeader
+                : (lastEventIdParam != null ? lastEventIdParam : 0L);
+        log.info("收到流式续传请求: streamId={}, lastEventId={}", streamId, lastEventId);
+
+        SseEmitter emitter = newManagedEmitter();
+        streamChatService.resumeStream(streamId, lastEventId, emitter);
+
+        return emitter;
+    }
+
+    /**
+     * 订阅对话当前的流式生成（观察者）
+     * 同一对话在其他标签页或设备上打开时，从头接收正在进行的回复，不会再次调用模型
+     * 
+     * @param conversationId 对话ID
+     * @param userId         用户ID（用于权限校验）
+     * @return 流式响应
+     */
+    @GetMapping(value = "/stream/conversation/{conversationId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter observeConversationStream(@PathVariable Long conversationId, @RequestParam String userId) {
+        log.info("收到对话流订阅请求: conversationId={}, userId={}", conversationId, userId);
+
+        SseEmitter emitter = newManagedEmitter();
+        streamChatService.observeConversation(conversationId, userId, emitter);
+
+        return emitter;
+    }
+
     /**
      * 发送聊天消息（同步版本，保留兼容性）
      * 支持新建对话和继续现有对话
@@ -99,21 +146,49 @@ public class ChatController {
     }
 
     /**
-     * 获取对话历史消息
+     * 按序号游标分页获取对话历史消息
+     * 不传游标时返回最新一页，before 用于向前翻页，after 用于获取之后的消息
      * 
      * @param conversationId 对话ID
-     * @return 消息列表
+     * @param before         只返回序号小于该值的消息
+     * @param after          只返回序号大于该值的消息
+     * @param size           每页大小
+     * @return 分页消息
      */
     @GetMapping("/history/{conversationId}")
-    public ResponseEntity<List<Message>> getConversationHistory(@PathVariable Long conversationId) {
-        log.info("获取对话历史: conversationId={}", conversationId);
+    public ResponseEntity<MessagePage> getConversationHistory(
+            @PathVariable Long conversationId,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer size) {
+        log.info("获取对话历史: conversationId={}, before={}, after={}, size={}",
+                conversationId, before, after, size);
+
+        MessagePage page = chatService.getConversationHistory(conversationId, before, after, size);
 
-        List<Message> messages = chatService.getConversationHistory(conversationId);
+        log.info("获取对话历史完成: conversationId={}, messageCount={}, hasMore={}",
+                conversationId, page.getSize(), page.isHasMore());
 
-        log.info("获取对话历史完成: conversationId={}, messageCount={}",
-                conversationId, messages.size());
+        return ResponseEntity.ok(page);
+    }
 
-        return ResponseEntity.ok(messages);
+    /**
+     * 增量同步：获取指定序号之后的消息
+     * 客户端保存返回的 afterCursor，下次以此继续同步；hasMore 为 true 时应立即继续拉取
+     * 
+     * @param conversationId 对话ID
+     * @param after          客户端已有的最大消息序号
+     * @param limit          单次返回的最大条数
+     * @return 分页消息
+     */
+    @GetMapping("/history/{conversationId}/delta")
+    public ResponseEntity<MessagePage> getConversationHistoryDelta(
+            @PathVariable Long conversationId,
+            @RequestParam Integer after,
+            @RequestParam(required = false) Integer limit) {
+        log.debug("增量同步对话历史: conversationId={}, after={}", conversationId, after);
+
+        return ResponseEntity.ok(chatService.getConversationHistory(conversationId, null, after, limit));
     }
 
     /**
@@ -138,6 +213,29 @@ public class ChatController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 批量导入对话消息
+     *
+     * @param conversationId 对话ID
+     * @param request        导入请求
+     * @return 操作结果
+     */
+    @PostMapping("/history/{conversationId}/import")
+    public ResponseEntity<Map<String, Object>> importConversationHistory(@PathVariable Long conversationId,
+            @Valid @RequestBody MessageImportRequest request) {
+        log.info("导入对话历史: conversationId={}, messageCount={}",
+                conversationId, request.getMessages().size());
+
+        int imported = chatService.importMessages(conversationId, request.getMessages());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("conversationId", conversationId);
+        result.put("importedCount", imported);
+
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 获取支持的模型列表
      * 
@@ -228,9 +326,18 @@ public class ChatController {
         request.setTitle("测试流式对话");
         request.setUserId("test-user");
 
-        SseEmitter emitter = new SseEmitter(30000L);
+        SseEmitter emitter = newManagedEmitter();
         chatService.chatStream(request, emitter);
 
         return emitter;
     }
-}
\ No newline at end of file
+
+    /**
+     * 创建由心跳时间轮管理的SSE发射器
+     */
+    private SseEmitter newManagedEmitter() {
+        ManagedSseEmitter emitter = new ManagedSseEmitter();
+        heartbeatWheel.register(emitter);
+        return emitter;
+    }
+}
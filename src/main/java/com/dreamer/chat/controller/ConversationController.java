@@ -1,11 +1,14 @@
 package com.dreamer.chat.controller;
 
+import com.dreamer.chat.dto.ConversationSummary;
+import com.dreamer.chat.dto.MessageSearchHit;
 import com.dreamer.chat.entity.Conversation;
 import com.dreamer.chat.service.ConversationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -38,10 +41,10 @@ public class ConversationController {
      * @return 对话列表
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Conversation>> getUserConversations(@PathVariable String userId) {
+    public ResponseEntity<List<ConversationSummary>> getUserConversations(@PathVariable String userId) {
         log.info("获取用户对话列表: userId={}", userId);
 
-        List<Conversation> conversations = conversationService.getUserConversations(userId);
+        List<ConversationSummary> conversations = conversationService.getUserConversations(userId);
 
         log.info("获取用户对话列表完成: userId={}, count={}", userId, conversations.size());
 
@@ -57,14 +60,14 @@ public class ConversationController {
      * @return 分页对话列表
      */
     @GetMapping("/user/{userId}/active")
-    public ResponseEntity<Page<Conversation>> getUserActiveConversations(
+    public ResponseEntity<Page<ConversationSummary>> getUserActiveConversations(
             @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
 
         log.info("分页获取用户活跃对话: userId={}, page={}, size={}", userId, page, size);
 
-        Page<Conversation> conversationPage = conversationService.getUserActiveConversations(userId, page, size);
+        Page<ConversationSummary> conversationPage = conversationService.getUserActiveConversations(userId, page, size);
 
         log.info("分页获取用户活跃对话完成: userId={}, totalElements={}, totalPages={}",
                 userId, conversationPage.getTotalElements(), conversationPage.getTotalPages());
@@ -80,13 +83,13 @@ public class ConversationController {
      * @return 最近对话列表
      */
     @GetMapping("/user/{userId}/recent")
-    public ResponseEntity<List<Conversation>> getRecentConversations(
+    public ResponseEntity<List<ConversationSummary>> getRecentConversations(
             @PathVariable String userId,
             @RequestParam(defaultValue = "10") int limit) {
 
         log.info("获取最近对话列表: userId={}, limit={}", userId, limit);
 
-        List<Conversation> conversations = conversationService.getRecentConversations(userId, limit);
+        List<ConversationSummary> conversations = conversationService.getRecentConversations(userId, limit);
 
         log.info("获取最近对话列表完成: userId={}, count={}", userId, conversations.size());
 
@@ -125,7 +128,7 @@ public class ConversationController {
      * @return 更新后的对话
      */
     @PutMapping("/{conversationId}/title")
-    public ResponseEntity<Conversation> updateConversationTitle(
+    public ResponseEntity<ConversationSummary> updateConversationTitle(
             @PathVariable Long conversationId,
             @RequestParam String userId,
             @RequestParam String newTitle) {
@@ -138,7 +141,7 @@ public class ConversationController {
 
         log.info("更新对话标题完成: conversationId={}", conversationId);
 
-        return ResponseEntity.ok(updatedConversation);
+        return ResponseEntity.ok(ConversationSummary.from(updatedConversation));
     }
 
     /**
@@ -246,27 +249,57 @@ public class ConversationController {
     }
 
     /**
-     * 搜索对话
+     * 按标题搜索用户的对话
      * 
      * @param userId  用户ID
      * @param keyword 搜索关键词
-     * @return 匹配的对话列表
+     * @param page    页码（从0开始）
+     * @param size    每页大小
+     * @return 按相关度排序的对话分片
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Conversation>> searchConversations(
+    public ResponseEntity<Slice<ConversationSummary>> searchConversations(
             @RequestParam String userId,
-            @RequestParam String keyword) {
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
 
-        log.info("搜索对话: userId={}, keyword={}", userId, keyword);
+        log.info("搜索对话: userId={}, keyword={}, page={}, size={}", userId, keyword, page, size);
 
-        List<Conversation> conversations = conversationService.searchConversationsByTitle(userId, keyword);
+        Slice<ConversationSummary> conversations = conversationService.searchConversationsByTitle(userId, keyword,
+                page, size);
 
-        log.info("搜索对话完成: userId={}, keyword={}, count={}",
-                userId, keyword, conversations.size());
+        log.info("搜索对话完成: userId={}, keyword={}, count={}, hasNext={}",
+                userId, keyword, conversations.getNumberOfElements(), conversations.hasNext());
 
         return ResponseEntity.ok(conversations);
     }
 
+    /**
+     * 全文检索用户的消息
+     * 
+     * @param userId 用户ID
+     * @param q      检索词
+     * @param page   页码（从0开始）
+     * @param size   每页大小
+     * @return 按相关度排序的检索结果
+     */
+    @GetMapping("/user/{userId}/messages/search")
+    public ResponseEntity<Slice<MessageSearchHit>> searchMessages(
+            @PathVariable String userId,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        log.info("检索消息: userId={}, q={}, page={}, size={}", userId, q, page, size);
+
+        Slice<MessageSearchHit> hits = conversationService.searchMessages(userId, q, page, size);
+
+        log.info("检索消息完成: userId={}, count={}, hasNext={}", userId, hits.getNumberOfElements(), hits.hasNext());
+
+        return ResponseEntity.ok(hits);
+    }
+
     /**
      * 统计用户对话数量
      * 
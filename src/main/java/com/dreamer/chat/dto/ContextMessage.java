@@ -0,0 +1,88 @@
+package com.dreamer.chat.dto;
+
+import com.dreamer.chat.enums.MessageType;
+
+/**
+ * 上下文消息投影
+ * 构建提示词只需要消息的角色和内容，查询时直接构造该对象，不加载受管理的实体
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class ContextMessage {
+
+    /**
+     * 消息ID（尚未保存的消息为空）
+     */
+    private final Long id;
+
+    /**
+     * 消息类型
+     */
+    private final MessageType messageType;
+
+    /**
+     * 消息内容
+     */
+    private final String content;
+
+    /**
+     * 消息序号（尚未保存的消息为空）
+     */
+    private final Integer sequenceNumber;
+
+    /**
+     * 已保存的Token数（未统计的消息为空，使用时由分词器计算）
+     */
+    private final Integer tokenCount;
+
+    public ContextMessage(Long id, MessageType messageType, String content, Integer sequenceNumber) {
+        this(id, messageType, content, sequenceNumber, null);
+    }
+
+    public ContextMessage(Long id, MessageType messageType, String content, Integer sequenceNumber,
+            Integer tokenCount) {
+        this.id = id;
+        this.messageType = messageType;
+        this.content = content;
+        this.sequenceNumber = sequenceNumber;
+        this.tokenCount = tokenCount;
+    }
+
+    /**
+     * 创建尚未保存的上下文消息（如本轮用户提问）
+     */
+    public static ContextMessage pending(MessageType messageType, String content) {
+        return new ContextMessage(null, messageType, content, null);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public MessageType getMessageType() {
+        return messageType;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Integer getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public Integer getTokenCount() {
+        return tokenCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextMessage{" +
+                "id=" + id +
+                ", messageType=" + messageType +
+                ", sequenceNumber=" + sequenceNumber +
+                ", contentLength=" + (content != null ? content.length() : 0) +
+                '}';
+    }
+}
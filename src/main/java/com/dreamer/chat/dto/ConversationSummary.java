@@ -0,0 +1,105 @@
+package com.dreamer.chat.dto;
+
+import java.time.LocalDateTime;
+
+import com.dreamer.chat.entity.Conversation;
+import com.dreamer.chat.enums.ModelProvider;
+
+/**
+ * 对话摘要只读视图
+ * 列表、详情等查询通过构造表达式只读取 conversations 单表，不涉及 Conversation.messages 懒加载集合
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class ConversationSummary {
+
+    private final Long id;
+    private final String title;
+    private final ModelProvider modelProvider;
+    private final String modelName;
+    private final String userId;
+    private final String status;
+    private final LocalDateTime createdTime;
+    private final LocalDateTime updatedTime;
+    private final Integer messageCount;
+    private final LocalDateTime lastMessageAt;
+    private final String lastMessagePreview;
+    private final Long totalTokens;
+
+    public ConversationSummary(Long id, String title, ModelProvider modelProvider, String modelName,
+            String userId, String status, LocalDateTime createdTime, LocalDateTime updatedTime,
+            Integer messageCount, LocalDateTime lastMessageAt, String lastMessagePreview, Long totalTokens) {
+        this.id = id;
+        this.title = title;
+        this.modelProvider = modelProvider;
+        this.modelName = modelName;
+        this.userId = userId;
+        this.status = status;
+        this.createdTime = createdTime;
+        this.updatedTime = updatedTime;
+        this.messageCount = messageCount;
+        this.lastMessageAt = lastMessageAt;
+        this.lastMessagePreview = lastMessagePreview;
+        this.totalTokens = totalTokens;
+    }
+
+    /**
+     * 由已加载的实体构建（用于写操作的返回值）
+     */
+    public static ConversationSummary from(Conversation conversation) {
+        return new ConversationSummary(conversation.getId(), conversation.getTitle(),
+                conversation.getModelProvider(), conversation.getModelName(), conversation.getUserId(),
+                conversation.getStatus(), conversation.getCreatedTime(), conversation.getUpdatedTime(),
+                conversation.getMessageCount(), conversation.getLastMessageAt(),
+                conversation.getLastMessagePreview(), conversation.getTotalTokens());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public ModelProvider getModelProvider() {
+        return modelProvider;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getCreatedTime() {
+        return createdTime;
+    }
+
+    public LocalDateTime getUpdatedTime() {
+        return updatedTime;
+    }
+
+    public Integer getMessageCount() {
+        return messageCount;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public Long getTotalTokens() {
+        return totalTokens;
+    }
+}
@@ -0,0 +1,85 @@
+package com.dreamer.chat.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+/**
+ * 消息批量导入请求DTO
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class MessageImportRequest {
+
+    /**
+     * 待导入的消息（按顺序追加到对话末尾）
+     */
+    @NotEmpty(message = "导入消息不能为空")
+    @Size(max = 10000, message = "单次导入消息不能超过10000条")
+    @Valid
+    private List<ImportedMessage> messages;
+
+    // 构造函数
+    public MessageImportRequest() {
+    }
+
+    public MessageImportRequest(List<ImportedMessage> messages) {
+        this.messages = messages;
+    }
+
+    // Getter和Setter方法
+    public List<ImportedMessage> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<ImportedMessage> messages) {
+        this.messages = messages;
+    }
+
+    /**
+     * 单条导入消息
+     */
+    public static class ImportedMessage {
+
+        /**
+         * 消息类型代码：user、assistant、system
+         */
+        @NotBlank(message = "消息类型不能为空")
+        private String role;
+
+        /**
+         * 消息内容
+         */
+        @NotBlank(message = "消息内容不能为空")
+        @Size(max = 10000, message = "消息内容长度不能超过10000字符")
+        private String content;
+
+        public ImportedMessage() {
+        }
+
+        public ImportedMessage(String role, String content) {
+            this.role = role;
+            this.content = content;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public void setRole(String role) {
+            this.role = role;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public void setContent(String content) {
+            this.content = content;
+        }
+    }
+}
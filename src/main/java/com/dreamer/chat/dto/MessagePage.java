@@ -0,0 +1,60 @@
+package com.dreamer.chat.dto;
+
+import java.util.List;
+
+/**
+ * 消息游标分页结果
+ * 游标为消息序号：向前翻页传 before=beforeCursor，增量同步传 after=afterCursor
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class MessagePage {
+
+    /**
+     * 本页消息（按序号升序）
+     */
+    private final List<MessageView> messages;
+
+    /**
+     * 查询方向上是否还有更多消息
+     */
+    private final boolean hasMore;
+
+    /**
+     * 本页第一条消息的序号，用于加载更早的消息
+     */
+    private final Integer beforeCursor;
+
+    /**
+     * 本页最后一条消息的序号，用于增量同步
+     */
+    private final Integer afterCursor;
+
+    public MessagePage(List<MessageView> messages, boolean hasMore, Integer beforeCursor, Integer afterCursor) {
+        this.messages = messages;
+        this.hasMore = hasMore;
+        this.beforeCursor = beforeCursor;
+        this.afterCursor = afterCursor;
+    }
+
+    public List<MessageView> getMessages() {
+        return messages;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public Integer getBeforeCursor() {
+        return beforeCursor;
+    }
+
+    public Integer getAfterCursor() {
+        return afterCursor;
+    }
+
+    public int getSize() {
+        return messages.size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.dreamer.chat.dto;
+
+import java.time.LocalDateTime;
+
+import com.dreamer.chat.enums.MessageType;
+
+/**
+ * 消息全文检索结果
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class MessageSearchHit {
+
+    private final Long messageId;
+    private final Long conversationId;
+    private final String conversationTitle;
+    private final MessageType messageType;
+    private final Integer sequenceNumber;
+    private final LocalDateTime timestamp;
+
+    /**
+     * 消息内容预览（前200字符）
+     */
+    private final String preview;
+
+    /**
+     * 相关度得分，越大越相关
+     */
+    private final double score;
+
+    public MessageSearchHit(Long messageId, Long conversationId, String conversationTitle, MessageType messageType,
+            Integer sequenceNumber, LocalDateTime timestamp, String preview, double score) {
+        this.messageId = messageId;
+        this.conversationId = conversationId;
+        this.conversationTitle = conversationTitle;
+        this.messageType = messageType;
+        this.sequenceNumber = sequenceNumber;
+        this.timestamp = timestamp;
+        this.preview = preview;
+        this.score = score;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public String getConversationTitle() {
+        return conversationTitle;
+    }
+
+    public MessageType getMessageType() {
+        return messageType;
+    }
+
+    public Integer getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,68 @@
+package com.dreamer.chat.dto;
+
+import java.time.LocalDateTime;
+
+import com.dreamer.chat.enums.MessageType;
+
+/**
+ * 消息只读视图
+ * 历史查询通过构造表达式直接生成，不涉及 Message.conversation 懒加载关联
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class MessageView {
+
+    private final Long id;
+    private final Long conversationId;
+    private final String content;
+    private final MessageType messageType;
+    private final Integer sequenceNumber;
+    private final Integer tokenCount;
+    private final LocalDateTime timestamp;
+    private final String metadata;
+
+    public MessageView(Long id, Long conversationId, String content, MessageType messageType,
+            Integer sequenceNumber, Integer tokenCount, LocalDateTime timestamp, String metadata) {
+        this.id = id;
+        this.conversationId = conversationId;
+        this.content = content;
+        this.messageType = messageType;
+        this.sequenceNumber = sequenceNumber;
+        this.tokenCount = tokenCount;
+        this.timestamp = timestamp;
+        this.metadata = metadata;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public MessageType getMessageType() {
+        return messageType;
+    }
+
+    public Integer getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public Integer getTokenCount() {
+        return tokenCount;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public String getMetadata() {
+        return metadata;
+    }
+}
@@ -2,6 +2,7 @@ package com.dreamer.chat.entity;
 
 import com.dreamer.chat.enums.ModelProvider;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -19,8 +20,12 @@ import java.util.List;
 @Table(name = "conversations")
 public class Conversation {
     
+    /**
+     * 主键ID（conversations_id_seq，步长50）
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conversations_id_gen")
+    @SequenceGenerator(name = "conversations_id_gen", sequenceName = "conversations_id_seq", allocationSize = 50)
     private Long id;
     
     /**
@@ -67,6 +72,33 @@ public class Conversation {
     @Column(name = "updated_time", nullable = false)
     private LocalDateTime updatedTime;
     
+    /**
+     * 消息数量
+     * 摘要列只由 ConversationRepository 的原生UPDATE增量维护，实体保存时不写入，避免覆盖并发更新
+     */
+    @ColumnDefault("0")
+    @Column(name = "message_count", nullable = false, insertable = false, updatable = false)
+    private Integer messageCount = 0;
+    
+    /**
+     * 最后一条消息的时间
+     */
+    @Column(name = "last_message_at", insertable = false, updatable = false)
+    private LocalDateTime lastMessageAt;
+    
+    /**
+     * 最后一条消息的预览（前200字符）
+     */
+    @Column(name = "last_message_preview", length = 200, insertable = false, updatable = false)
+    private String lastMessagePreview;
+    
+    /**
+     * 对话累计Token数
+     */
+    @ColumnDefault("0")
+    @Column(name = "total_tokens", nullable = false, insertable = false, updatable = false)
+    private Long totalTokens = 0L;
+    
     /**
      * 对话中的消息列表
      */
@@ -144,6 +176,22 @@ public class Conversation {
         this.updatedTime = updatedTime;
     }
     
+    public Integer getMessageCount() {
+        return messageCount;
+    }
+    
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+    
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+    
+    public Long getTotalTokens() {
+        return totalTokens;
+    }
+    
     public List<Message> getMessages() {
         return messages;
     }
@@ -171,6 +219,7 @@ public class Conversation {
                 ", status='" + status + '\'' +
                 ", createdTime=" + createdTime +
                 ", updatedTime=" + updatedTime +
+                ", messageCount=" + messageCount +
                 '}';
     }
 }
\ No newline at end of file
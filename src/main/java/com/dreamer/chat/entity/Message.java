@@ -16,8 +16,12 @@ import java.time.LocalDateTime;
 @Table(name = "messages")
 public class Message {
     
+    /**
+     * 主键ID，由序列按pooled-lo方式批量分配，不影响Hibernate的JDBC批量插入
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "messages_id_gen")
+    @SequenceGenerator(name = "messages_id_gen", sequenceName = "messages_id_seq", allocationSize = 50)
     private Long id;
     
     /**
@@ -2,6 +2,7 @@ package com.dreamer.chat.entity;
 
 import com.dreamer.chat.enums.ModelProvider;
 import com.dreamer.chat.enums.PromptType;
+import com.dreamer.chat.util.CompiledTemplate;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -68,7 +69,7 @@ public class PromptTemplate {
     private String conversationStarter;
 
     /**
-     * 最大上下文长度
+     * 历史消息的最大Token数（另受模型上下文窗口限制）
      */
     @Column(name = "max_context_length")
     private Integer maxContextLength;
@@ -129,6 +130,18 @@ public class PromptTemplate {
     @Column(name = "created_by", length = 50)
     private String createdBy;
 
+    /**
+     * 预编译的系统提示词（不持久化，随模板实例缓存，修改 systemPrompt 时失效）
+     */
+    @Transient
+    private volatile CompiledTemplate compiledSystemPrompt;
+
+    /**
+     * 预编译的对话开始模板（不持久化，修改 conversationStarter 时失效）
+     */
+    @Transient
+    private volatile CompiledTemplate compiledConversationStarter;
+
     // 构造函数
     public PromptTemplate() {
     }
@@ -178,6 +191,19 @@ public class PromptTemplate {
 
     public void setSystemPrompt(String systemPrompt) {
         this.systemPrompt = systemPrompt;
+        this.compiledSystemPrompt = null;
+    }
+
+    /**
+     * 获取预编译的系统提示词，首次使用时解析
+     */
+    public CompiledTemplate compiledSystemPrompt() {
+        CompiledTemplate compiled = compiledSystemPrompt;
+        if (compiled == null && systemPrompt != null) {
+            compiled = CompiledTemplate.compile(systemPrompt);
+            compiledSystemPrompt = compiled;
+        }
+        return compiled;
     }
 
     public String getUserPrefix() {
@@ -202,6 +228,19 @@ public class PromptTemplate {
 
     public void setConversationStarter(String conversationStarter) {
         this.conversationStarter = conversationStarter;
+        this.compiledConversationStarter = null;
+    }
+
+    /**
+     * 获取预编译的对话开始模板，首次使用时解析
+     */
+    public CompiledTemplate compiledConversationStarter() {
+        CompiledTemplate compiled = compiledConversationStarter;
+        if (compiled == null && conversationStarter != null) {
+            compiled = CompiledTemplate.compile(conversationStarter);
+            compiledConversationStarter = compiled;
+        }
+        return compiled;
     }
 
     public Integer getMaxContextLength() {
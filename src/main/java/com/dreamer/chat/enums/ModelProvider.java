@@ -11,31 +11,37 @@ public enum ModelProvider {
     /**
      * 阿里巴巴千问
      */
-    QIANWEN("qianwen", "阿里巴巴千问", "qwen-plus"),
+    QIANWEN("qianwen", "阿里巴巴千问", "qwen-plus", 131072),
 
     /**
      * 讯飞星火
      */
-    XINGHUO("xinghuo", "讯飞星火", "spark"),
+    XINGHUO("xinghuo", "讯飞星火", "spark", 8192),
 
     /**
      * 豆包
      */
-    DOUBAO("doubao", "豆包", "ark"),
+    DOUBAO("doubao", "豆包", "ark", 32768),
 
     /**
      * DeepSeek
      */
-    DEEPSEEK("deepseek", "DeepSeek", "deepseek-chat");
+    DEEPSEEK("deepseek", "DeepSeek", "deepseek-chat", 65536);
 
     private final String code;
     private final String name;
     private final String model;
 
-    ModelProvider(String code, String name, String model) {
+    /**
+     * 默认模型的上下文窗口（Token数，输入与输出之和）
+     */
+    private final int contextWindow;
+
+    ModelProvider(String code, String name, String model, int contextWindow) {
         this.code = code;
         this.name = name;
         this.model = model;
+        this.contextWindow = contextWindow;
     }
 
     public String getCode() {
@@ -50,6 +56,10 @@ public enum ModelProvider {
         return model;
     }
 
+    public int getContextWindow() {
+        return contextWindow;
+    }
+
     /**
      * 根据代码获取模型提供商
      */
@@ -0,0 +1,55 @@
+package com.dreamer.chat.enums;
+
+/**
+ * 慢消费者处理策略枚举
+ * SSE订阅者的发送队列积压满时采取的处理方式
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * 合并积压的正文帧为一帧，不丢内容
+     */
+    COALESCE("coalesce", "合并"),
+
+    /**
+     * 丢弃积压的中间正文帧，恢复发送时以快照补齐正文
+     */
+    DROP("drop", "丢弃"),
+
+    /**
+     * 丢弃积压事件并断开该订阅者：当前发送返回后尽力发送 SLOW_CONSUMER 终止事件再结束连接，
+     * 客户端可使用 Last-Event-ID 续传
+     */
+    ABORT("abort", "断开");
+
+    private final String code;
+    private final String name;
+
+    SlowConsumerPolicy(String code, String name) {
+        this.code = code;
+        this.name = name;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 根据代码获取慢消费者处理策略
+     */
+    public static SlowConsumerPolicy fromCode(String code) {
+        for (SlowConsumerPolicy policy : values()) {
+            if (policy.code.equalsIgnoreCase(code)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown slow consumer policy code: " + code);
+    }
+}
@@ -1,15 +1,18 @@
 package com.dreamer.chat.repository;
 
+import com.dreamer.chat.dto.ConversationSummary;
 import com.dreamer.chat.entity.Conversation;
 import com.dreamer.chat.enums.ModelProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +25,40 @@ import java.util.Optional;
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
     
+    /**
+     * 列表与详情查询使用的只读摘要构造表达式（只读取 conversations 单表）
+     */
+    String SUMMARY_SELECT = "SELECT new com.dreamer.chat.dto.ConversationSummary(c.id, c.title, c.modelProvider, "
+            + "c.modelName, c.userId, c.status, c.createdTime, c.updatedTime, c.messageCount, c.lastMessageAt, "
+            + "c.lastMessagePreview, c.totalTokens) FROM Conversation c ";
+    
+    /**
+     * 用户的对话摘要列表（按更新时间倒序）
+     */
+    @Query(SUMMARY_SELECT + "WHERE c.userId = :userId ORDER BY c.updatedTime DESC")
+    List<ConversationSummary> findSummariesByUserId(@Param("userId") String userId);
+    
+    /**
+     * 分页获取指定状态的对话摘要（按更新时间倒序）
+     */
+    @Query(value = SUMMARY_SELECT + "WHERE c.userId = :userId AND c.status = :status ORDER BY c.updatedTime DESC",
+            countQuery = "SELECT COUNT(c) FROM Conversation c WHERE c.userId = :userId AND c.status = :status")
+    Page<ConversationSummary> findSummariesByUserIdAndStatus(@Param("userId") String userId,
+            @Param("status") String status, Pageable pageable);
+    
+    /**
+     * 最近的对话摘要（不做总数统计）
+     */
+    @Query(SUMMARY_SELECT + "WHERE c.userId = :userId AND c.status = :status ORDER BY c.updatedTime DESC")
+    List<ConversationSummary> findRecentSummaries(@Param("userId") String userId, @Param("status") String status,
+            Pageable pageable);
+    
+    /**
+     * 按ID和用户ID获取对话摘要（安全检查）
+     */
+    @Query(SUMMARY_SELECT + "WHERE c.id = :id AND c.userId = :userId")
+    Optional<ConversationSummary> findSummaryByIdAndUserId(@Param("id") Long id, @Param("userId") String userId);
+    
     /**
      * 根据用户ID查找对话列表
      */
@@ -37,12 +74,6 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
      */
     List<Conversation> findByModelProviderOrderByCreatedTimeDesc(ModelProvider modelProvider);
     
-    /**
-     * 根据标题模糊查询对话
-     */
-    @Query("SELECT c FROM Conversation c WHERE c.title LIKE %:title% AND c.status = :status ORDER BY c.updatedTime DESC")
-    List<Conversation> findByTitleContainingAndStatus(@Param("title") String title, @Param("status") String status);
-    
     /**
      * 查找指定时间范围内的对话
      */
@@ -64,4 +95,47 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
      */
     @Query("SELECT c FROM Conversation c WHERE c.userId = :userId AND c.status = :status ORDER BY c.updatedTime DESC")
     Page<Conversation> findRecentConversations(@Param("userId") String userId, @Param("status") String status, Pageable pageable);
-}
\ No newline at end of file
+    
+    /**
+     * 新增消息后增量更新对话摘要列，并刷新更新时间
+     * 使用原生SQL在数据库中原子累加，不经过实体，不会被并发保存覆盖
+     */
+    @Modifying
+    @Query(value = "UPDATE conversations SET message_count = message_count + :count, "
+            + "total_tokens = total_tokens + :tokens, last_message_at = :lastMessageAt, "
+            + "last_message_preview = :preview, updated_time = :lastMessageAt WHERE id = :conversationId",
+            nativeQuery = true)
+    int recordMessagesAdded(@Param("conversationId") Long conversationId, @Param("count") int count,
+            @Param("tokens") long tokens, @Param("lastMessageAt") LocalDateTime lastMessageAt,
+            @Param("preview") String preview);
+    
+    /**
+     * 按ID删除对话（单条DELETE语句，不级联加载消息集合，消息需先行删除）
+     */
+    @Modifying
+    @Query("DELETE FROM Conversation c WHERE c.id = :conversationId")
+    int bulkDeleteById(@Param("conversationId") Long conversationId);
+    
+    /**
+     * 清理任务：查找软删除时间早于 cutoff 的对话ID
+     */
+    @Query("SELECT c.id FROM Conversation c WHERE c.status = 'DELETED' AND c.updatedTime < :cutoff ORDER BY c.id")
+    List<Long> findPurgeCandidateIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    /**
+     * 清理任务：删除仍处于已删除状态的对话
+     */
+    @Modifying
+    @Query("DELETE FROM Conversation c WHERE c.id IN :conversationIds AND c.status = 'DELETED'")
+    int deletePurgeable(@Param("conversationIds") Collection<Long> conversationIds);
+    
+    /**
+     * 清空消息后重置对话摘要列
+     */
+    @Modifying
+    @Query(value = "UPDATE conversations SET message_count = 0, total_tokens = 0, last_message_at = NULL, "
+            + "last_message_preview = NULL, updated_time = :updatedTime WHERE id = :conversationId",
+            nativeQuery = true)
+    int resetMessageSummary(@Param("conversationId") Long conversationId,
+            @Param("updatedTime") LocalDateTime updatedTime);
+}
@@ -0,0 +1,27 @@
+package com.dreamer.chat.repository;
+
+import java.util.List;
+
+import com.dreamer.chat.dto.ConversationSummary;
+
+/**
+ * 对话标题检索数据访问层
+ * PostgreSQL使用pg_trgm索引，SQLite使用FTS5 trigram表，由 {@link com.dreamer.chat.config.SearchConfig} 按数据库选择实现
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public interface ConversationSearchRepository {
+
+    /**
+     * 按标题检索用户指定状态的对话，按相关度降序，相关度相同时按更新时间倒序
+     *
+     * @param userId  用户ID
+     * @param keyword 标题关键词
+     * @param status  对话状态
+     * @param offset  跳过的条数
+     * @param limit   返回的最大条数
+     * @return 对话摘要列表
+     */
+    List<ConversationSummary> searchByTitle(String userId, String keyword, String status, int offset, int limit);
+}
@@ -1,15 +1,19 @@
 package com.dreamer.chat.repository;
 
+import com.dreamer.chat.dto.ContextMessage;
+import com.dreamer.chat.dto.MessageView;
 import com.dreamer.chat.entity.Message;
 import com.dreamer.chat.enums.MessageType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -31,6 +35,34 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      */
     Page<Message> findByConversationIdOrderBySequenceNumberAsc(Long conversationId, Pageable pageable);
     
+    /**
+     * 历史查询使用的只读视图构造表达式
+     */
+    String MESSAGE_VIEW_SELECT = "SELECT new com.dreamer.chat.dto.MessageView(m.id, m.conversation.id, m.content, "
+            + "m.messageType, m.sequenceNumber, m.tokenCount, m.timestamp, m.metadata) FROM Message m ";
+    
+    /**
+     * 游标分页：对话中最新的消息（按序号倒序）
+     */
+    @Query(MESSAGE_VIEW_SELECT + "WHERE m.conversation.id = :conversationId ORDER BY m.sequenceNumber DESC")
+    List<MessageView> findLatestViews(@Param("conversationId") Long conversationId, Pageable pageable);
+    
+    /**
+     * 游标分页：序号小于 before 的消息（按序号倒序）
+     */
+    @Query(MESSAGE_VIEW_SELECT + "WHERE m.conversation.id = :conversationId AND m.sequenceNumber < :before "
+            + "ORDER BY m.sequenceNumber DESC")
+    List<MessageView> findViewsBefore(@Param("conversationId") Long conversationId,
+            @Param("before") Integer before, Pageable pageable);
+    
+    /**
+     * 游标分页/增量同步：序号大于 after 的消息（按序号升序）
+     */
+    @Query(MESSAGE_VIEW_SELECT + "WHERE m.conversation.id = :conversationId AND m.sequenceNumber > :after "
+            + "ORDER BY m.sequenceNumber ASC")
+    List<MessageView> findViewsAfter(@Param("conversationId") Long conversationId,
+            @Param("after") Integer after, Pageable pageable);
+    
     /**
      * 根据对话ID和消息类型查找消息
      */
@@ -41,6 +73,15 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId ORDER BY m.sequenceNumber DESC")
     List<Message> findTopNByConversationId(@Param("conversationId") Long conversationId, Pageable pageable);
     
+    /**
+     * 获取对话中最新的N条消息作为上下文（按序号倒序，需调用方反转）
+     * 沿 (conversation_id, sequence_number) 索引倒序读取并LIMIT，只返回投影，不加载实体
+     */
+    @Query("SELECT new com.dreamer.chat.dto.ContextMessage(m.id, m.messageType, m.content, m.sequenceNumber, "
+            + "m.tokenCount) "
+            + "FROM Message m WHERE m.conversation.id = :conversationId ORDER BY m.sequenceNumber DESC")
+    List<ContextMessage> findRecentContext(@Param("conversationId") Long conversationId, Pageable pageable);
+    
     /**
      * 获取对话中消息的最大序号
      */
@@ -59,15 +100,23 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     long countByConversationId(Long conversationId);
     
     /**
-     * 根据内容模糊查询消息
+     * 批量删除对话中的所有消息（单条DELETE语句，不加载实体）
      */
-    @Query("SELECT m FROM Message m WHERE m.content LIKE %:content% ORDER BY m.timestamp DESC")
-    List<Message> findByContentContaining(@Param("content") String content);
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.conversation.id = :conversationId")
+    int bulkDeleteByConversationId(@Param("conversationId") Long conversationId);
     
     /**
-     * 删除对话中的所有消息
+     * 清理任务：删除一批属于已软删除对话的消息，最多 limit 条
+     * 再次校验对话状态，期间被恢复的对话不受影响
      */
-    void deleteByConversationId(Long conversationId);
+    @Modifying
+    @Query(value = "DELETE FROM messages WHERE id IN (SELECT m.id FROM messages m "
+            + "JOIN conversations c ON c.id = m.conversation_id "
+            + "WHERE m.conversation_id IN (:conversationIds) AND c.status = 'DELETED' LIMIT :limit)",
+            nativeQuery = true)
+    int deletePurgeableMessages(@Param("conversationIds") Collection<Long> conversationIds,
+            @Param("limit") int limit);
     
     /**
      * 获取对话的消息历史（用于上下文）
@@ -0,0 +1,26 @@
+package com.dreamer.chat.repository;
+
+import java.util.List;
+
+import com.dreamer.chat.dto.MessageSearchHit;
+
+/**
+ * 消息全文检索数据访问层
+ * PostgreSQL与SQLite的全文检索语法不同，由 {@link com.dreamer.chat.config.SearchConfig} 按数据库选择实现
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public interface MessageSearchRepository {
+
+    /**
+     * 在用户未删除的对话中检索消息，按相关度降序
+     *
+     * @param userId 用户ID
+     * @param query  检索词
+     * @param offset 跳过的条数
+     * @param limit  返回的最大条数
+     * @return 检索结果
+     */
+    List<MessageSearchHit> search(String userId, String query, int offset, int limit);
+}
@@ -0,0 +1,41 @@
+package com.dreamer.chat.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.dreamer.chat.dto.ConversationSummary;
+
+/**
+ * PostgreSQL对话标题检索
+ * 包含匹配的 ILIKE 可使用 idx_conversations_title_trgm（pg_trgm GIN索引），按 similarity 排序
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class PostgresConversationSearchRepository implements ConversationSearchRepository {
+
+    private static final String SEARCH_SQL = "SELECT " + SearchRows.SUMMARY_COLUMNS + " FROM conversations c "
+            + "WHERE c.user_id = :userId AND c.status = :status AND c.title ILIKE :pattern ESCAPE '\\' "
+            + "ORDER BY similarity(c.title, :keyword) DESC, c.updated_time DESC LIMIT :limit OFFSET :offset";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PostgresConversationSearchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<ConversationSummary> searchByTitle(String userId, String keyword, String status, int offset,
+            int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("status", status)
+                .addValue("keyword", keyword)
+                .addValue("pattern", SearchRows.containsPattern(keyword))
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(SEARCH_SQL, params, SearchRows.SUMMARY_MAPPER);
+    }
+}
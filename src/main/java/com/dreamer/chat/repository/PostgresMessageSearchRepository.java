@@ -0,0 +1,45 @@
+package com.dreamer.chat.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.dreamer.chat.dto.MessageSearchHit;
+
+/**
+ * PostgreSQL消息全文检索
+ * 谓词与 idx_messages_content_search 的表达式 to_tsvector('chinese', content) 完全一致，命中GIN索引；
+ * 按 ts_rank 排序，用户范围通过关联 conversations.user_id 限定
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class PostgresMessageSearchRepository implements MessageSearchRepository {
+
+    private static final String SEARCH_SQL = "SELECT m.id, m.conversation_id, c.title, m.message_type, "
+            + "m.sequence_number, m.timestamp, left(m.content, :previewLength) AS preview, "
+            + "ts_rank(to_tsvector('chinese', m.content), q) AS score "
+            + "FROM messages m JOIN conversations c ON c.id = m.conversation_id, "
+            + "plainto_tsquery('chinese', :query) q "
+            + "WHERE to_tsvector('chinese', m.content) @@ q "
+            + "AND c.user_id = :userId AND c.status <> 'DELETED' "
+            + "ORDER BY score DESC, m.id DESC LIMIT :limit OFFSET :offset";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PostgresMessageSearchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<MessageSearchHit> search(String userId, String query, int offset, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("query", query)
+                .addValue("previewLength", SearchRows.PREVIEW_LENGTH)
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(SEARCH_SQL, params, SearchRows.MESSAGE_HIT_MAPPER);
+    }
+}
@@ -0,0 +1,90 @@
+package com.dreamer.chat.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.dreamer.chat.dto.ConversationSummary;
+import com.dreamer.chat.dto.MessageSearchHit;
+import com.dreamer.chat.enums.MessageType;
+import com.dreamer.chat.enums.ModelProvider;
+
+/**
+ * 全文检索的行映射与检索词处理，两种数据库的检索语句按相同的列顺序返回
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+final class SearchRows {
+
+    /**
+     * 预览的最大长度，与 conversations.last_message_preview 列宽一致
+     */
+    static final int PREVIEW_LENGTH = 200;
+
+    /**
+     * trigram分词可检索的最短字符数，更短的检索词无法命中索引
+     */
+    static final int TRIGRAM_MIN_LENGTH = 3;
+
+    /**
+     * 对话摘要列，与 {@link #SUMMARY_MAPPER} 的顺序一致
+     */
+    static final String SUMMARY_COLUMNS = "c.id, c.title, c.model_provider, c.model_name, c.user_id, c.status, "
+            + "c.created_time, c.updated_time, c.message_count, c.last_message_at, c.last_message_preview, "
+            + "c.total_tokens";
+
+    static final RowMapper<MessageSearchHit> MESSAGE_HIT_MAPPER = (rs, rowNum) -> new MessageSearchHit(
+            rs.getLong(1),
+            rs.getLong(2),
+            rs.getString(3),
+            MessageType.valueOf(rs.getString(4)),
+            rs.getInt(5),
+            localDateTime(rs, 6),
+            rs.getString(7),
+            rs.getDouble(8));
+
+    static final RowMapper<ConversationSummary> SUMMARY_MAPPER = (rs, rowNum) -> new ConversationSummary(
+            rs.getLong(1),
+            rs.getString(2),
+            ModelProvider.valueOf(rs.getString(3)),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            localDateTime(rs, 7),
+            localDateTime(rs, 8),
+            rs.getInt(9),
+            localDateTime(rs, 10),
+            rs.getString(11),
+            rs.getLong(12));
+
+    private SearchRows() {
+    }
+
+    static boolean isTrigramSearchable(String keyword) {
+        return keyword.codePointCount(0, keyword.length()) >= TRIGRAM_MIN_LENGTH;
+    }
+
+    /**
+     * 转为FTS5短语，避免检索词中的运算符（AND、OR、NEAR、*、引号等）被解析
+     */
+    static String ftsPhrase(String keyword) {
+        return '"' + keyword.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * 包含匹配的LIKE模式，使用 ESCAPE '\' 转义通配符
+     */
+    static String containsPattern(String keyword) {
+        String escaped = keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return '%' + escaped + '%';
+    }
+
+    private static LocalDateTime localDateTime(ResultSet rs, int column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
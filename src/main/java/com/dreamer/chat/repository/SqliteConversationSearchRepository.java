@@ -0,0 +1,52 @@
+package com.dreamer.chat.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.dreamer.chat.dto.ConversationSummary;
+
+/**
+ * SQLite对话标题检索
+ *
+ * <p>
+ * SQLite没有pg_trgm，使用 conversations_title_fts（FTS5外部内容表，trigram分词）作为n-gram索引，
+ * 中文标题按字符切分，不依赖空格；按 bm25 排序。
+ * 不足3个字符的关键词（如两个汉字）无法命中trigram索引，退化为用户范围内的 LIKE，
+ * 由 idx_conversations_user_status_updated 限定扫描范围，按更新时间倒序。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class SqliteConversationSearchRepository implements ConversationSearchRepository {
+
+    private static final String FTS_SQL = "SELECT " + SearchRows.SUMMARY_COLUMNS + " "
+            + "FROM conversations_title_fts JOIN conversations c ON c.id = conversations_title_fts.rowid "
+            + "WHERE conversations_title_fts MATCH :keyword AND c.user_id = :userId AND c.status = :status "
+            + "ORDER BY bm25(conversations_title_fts), c.updated_time DESC LIMIT :limit OFFSET :offset";
+
+    private static final String LIKE_SQL = "SELECT " + SearchRows.SUMMARY_COLUMNS + " FROM conversations c "
+            + "WHERE c.user_id = :userId AND c.status = :status AND c.title LIKE :keyword ESCAPE '\\' "
+            + "ORDER BY c.updated_time DESC LIMIT :limit OFFSET :offset";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SqliteConversationSearchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<ConversationSummary> searchByTitle(String userId, String keyword, String status, int offset,
+            int limit) {
+        boolean trigram = SearchRows.isTrigramSearchable(keyword);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("status", status)
+                .addValue("keyword", trigram ? SearchRows.ftsPhrase(keyword) : SearchRows.containsPattern(keyword))
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(trigram ? FTS_SQL : LIKE_SQL, params, SearchRows.SUMMARY_MAPPER);
+    }
+}
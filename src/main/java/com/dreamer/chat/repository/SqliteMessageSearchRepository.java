@@ -0,0 +1,56 @@
+package com.dreamer.chat.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.dreamer.chat.dto.MessageSearchHit;
+
+/**
+ * SQLite消息全文检索
+ *
+ * <p>
+ * 使用 messages_fts（FTS5外部内容表，trigram分词，由触发器与 messages 同步）。
+ * trigram分词不依赖空格，中文同样适用；检索词按短语匹配，按 bm25 排序（值越小越相关，取负作为得分）。
+ * trigram至少需要3个字符，更短的检索词退化为用户范围内的 LIKE 扫描，按时间倒序返回。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class SqliteMessageSearchRepository implements MessageSearchRepository {
+
+    private static final String FTS_SQL = "SELECT m.id, m.conversation_id, c.title, m.message_type, "
+            + "m.sequence_number, m.timestamp, substr(m.content, 1, :previewLength) AS preview, "
+            + "-bm25(messages_fts) AS score "
+            + "FROM messages_fts JOIN messages m ON m.id = messages_fts.rowid "
+            + "JOIN conversations c ON c.id = m.conversation_id "
+            + "WHERE messages_fts MATCH :query AND c.user_id = :userId AND c.status <> 'DELETED' "
+            + "ORDER BY bm25(messages_fts), m.id DESC LIMIT :limit OFFSET :offset";
+
+    private static final String LIKE_SQL = "SELECT m.id, m.conversation_id, c.title, m.message_type, "
+            + "m.sequence_number, m.timestamp, substr(m.content, 1, :previewLength) AS preview, 0 AS score "
+            + "FROM messages m JOIN conversations c ON c.id = m.conversation_id "
+            + "WHERE c.user_id = :userId AND c.status <> 'DELETED' "
+            + "AND m.content LIKE :query ESCAPE '\\' "
+            + "ORDER BY m.id DESC LIMIT :limit OFFSET :offset";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SqliteMessageSearchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<MessageSearchHit> search(String userId, String query, int offset, int limit) {
+        boolean trigram = SearchRows.isTrigramSearchable(query);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("query", trigram ? SearchRows.ftsPhrase(query) : SearchRows.containsPattern(query))
+                .addValue("previewLength", SearchRows.PREVIEW_LENGTH)
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(trigram ? FTS_SQL : LIKE_SQL, params, SearchRows.MESSAGE_HIT_MAPPER);
+    }
+}
@@ -8,14 +8,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
@@ -26,6 +27,9 @@ import com.dreamer.chat.entity.Conversation;
 import com.dreamer.chat.entity.Message;
 import com.dreamer.chat.enums.*;
 import com.dreamer.chat.repository.MessageRepository;
+import com.dreamer.chat.stream.SseDisconnectSignal;
+import com.dreamer.chat.stream.StreamMetrics;
+import com.dreamer.chat.tokenizer.Tokenizer;
 
 import reactor.core.publisher.Flux;
 
@@ -54,6 +58,24 @@ public class ChatService {
     @Autowired
     private PromptBuilderService promptBuilderService;
 
+    @Autowired
+    private StreamMetrics streamMetrics;
+
+    @Autowired
+    private MessageSequenceAllocator sequenceAllocator;
+
+    @Autowired
+    private ConversationContextCache contextCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Tokenizer tokenizer;
+
+    @Autowired
+    private PromptMetrics promptMetrics;
+
     @Value("${app.chat.max-history-size:50}")
     private int maxHistorySize;
 
@@ -63,14 +85,18 @@ public class ChatService {
     @Value("${app.chat.timeout-seconds:30}")
     private int timeoutSeconds;
 
+    @Value("${app.chat.import.batch-size:500}")
+    private int importBatchSize;
+
     /**
      * 处理聊天请求
      * 支持新对话创建和现有对话继续
+     * 不在外层开启事务：各步骤自行提交，调用AI期间不占用数据库连接，
+     * 序号冲突时的重试也不会因外层事务被标记回滚而失败
      * 
      * @param request 聊天请求
      * @return 聊天响应
      */
-    @Transactional
     public ChatResponse chat(ChatRequest request) {
         long startTime = System.currentTimeMillis();
 
@@ -81,20 +107,33 @@ public class ChatService {
             // 2. 获取或创建对话
             Conversation conversation = getOrCreateConversation(request, modelProvider);
 
-            // 3. 保存用户消息
-            Message userMessage = saveUserMessage(conversation, request.getMessage());
-
-            // 4. 获取聊天历史上下文
-            List<Message> contextMessages = getConversationContext(conversation.getId());
+            // 3. 获取聊天历史上下文，本轮用户消息暂不落库，只追加到上下文末尾
+            LocalDateTime askedAt = LocalDateTime.now();
+            List<ContextMessage> contextMessages = getConversationContext(conversation.getId());
+            contextMessages.add(ContextMessage.pending(MessageType.USER, request.getMessage()));
+            if (contextMessages.size() > maxHistorySize) {
+                contextMessages.remove(0);
+            }
 
-            // 5. 智能检测Prompt类型
+            // 4. 智能检测Prompt类型
             PromptType promptType = promptBuilderService.detectPromptType(request.getMessage());
 
-            // 6. 调用AI模型生成回复
-            String aiResponse = generateAiResponse(modelProvider, promptType, contextMessages, request);
+            // 5. 调用AI模型生成回复
+            AiReply aiReply;
+            try {
+                aiReply = generateAiResponse(modelProvider, promptType, contextMessages, request);
+            } catch (RuntimeException e) {
+                // 生成失败时仍保留用户的提问
+                saveUserMessage(conversation, request.getMessage());
+                throw e;
+            }
 
-            // 6. 保存AI回复消息
-            Message assistantMessage = saveAssistantMessage(conversation, aiResponse);
+            // 6. 用户消息与AI回复作为一个JDBC批次写入
+            String aiResponse = aiReply.content();
+            List<Message> turn = saveTurn(conversation, request.getMessage(), askedAt, aiResponse,
+                    aiReply.generationTokens());
+            Message userMessage = turn.get(0);
+            Message assistantMessage = turn.get(1);
 
             // 7. 构建响应
             ChatResponse response = buildChatResponse(
@@ -168,57 +207,153 @@ public class ChatService {
      * 保存用户消息
      */
     public Message saveUserMessage(Conversation conversation, String content) {
-        int nextSequence = getNextSequenceNumber(conversation.getId());
-
-        Message message = new Message(content, MessageType.USER);
-        message.setConversation(conversation);
-        message.setSequenceNumber(nextSequence);
-        message.setTimestamp(LocalDateTime.now());
+        return saveMessage(conversation, content, MessageType.USER);
+    }
 
-        return messageRepository.save(message);
+    /**
+     * 保存AI助手消息，Token数由本地分词器计算
+     */
+    public Message saveAssistantMessage(Conversation conversation, String content) {
+        return saveAssistantMessage(conversation, content, null);
     }
 
     /**
      * 保存AI助手消息
+     * 
+     * @param generationTokens 模型返回的生成Token数，为空时由本地分词器计算
      */
-    public Message saveAssistantMessage(Conversation conversation, String content) {
-        int nextSequence = getNextSequenceNumber(conversation.getId());
+    public Message saveAssistantMessage(Conversation conversation, String content, Integer generationTokens) {
+        return saveMessage(conversation, content, MessageType.ASSISTANT, generationTokens);
+    }
 
-        Message message = new Message(content, MessageType.ASSISTANT);
-        message.setConversation(conversation);
-        message.setSequenceNumber(nextSequence);
-        message.setTimestamp(LocalDateTime.now());
+    private Message saveMessage(Conversation conversation, String content, MessageType messageType) {
+        return saveMessage(conversation, content, messageType, null);
+    }
 
-        return messageRepository.save(message);
+    /**
+     * 保存消息，序号由内存分配器分配，冲突时自动重试
+     */
+    private Message saveMessage(Conversation conversation, String content, MessageType messageType,
+            Integer tokenCount) {
+        List<Message> saved = sequenceAllocator.allocateAndSave(conversation.getId(),
+                sequence -> persistMessages(conversation.getId(), List.of(
+                        newMessage(conversation, content, messageType, sequence, LocalDateTime.now(),
+                                tokenCount))));
+        contextCache.append(conversation.getId(), saved);
+        return saved.get(0);
     }
 
     /**
-     * 获取下一个序号
+     * 保存一轮对话（用户消息 + AI回复）
+     * 两条消息使用连续的序号，在同一事务中通过一次JDBC批量插入写入
+     * 
+     * @param conversation     对话
+     * @param userContent      用户消息内容
+     * @param askedAt          用户提问时间
+     * @param assistantContent AI回复内容
+     * @param assistantTokens  模型返回的生成Token数，为空时由本地分词器计算
+     * @return 已保存的用户消息与AI回复（按此顺序）
      */
-    private int getNextSequenceNumber(Long conversationId) {
-        Integer maxSequence = messageRepository.findMaxSequenceNumberByConversationId(conversationId);
-        return (maxSequence == null ? 0 : maxSequence) + 1;
+    public List<Message> saveTurn(Conversation conversation, String userContent, LocalDateTime askedAt,
+            String assistantContent, Integer assistantTokens) {
+        List<Message> saved = sequenceAllocator.allocateAndSave(conversation.getId(), 2,
+                first -> persistMessages(conversation.getId(), List.of(
+                        newMessage(conversation, userContent, MessageType.USER, first, askedAt, null),
+                        newMessage(conversation, assistantContent, MessageType.ASSISTANT, first + 1,
+                                LocalDateTime.now(), assistantTokens))));
+        contextCache.append(conversation.getId(), saved);
+        return saved;
     }
 
     /**
-     * 获取对话上下文
+     * 批量导入对话消息
+     * 按 importBatchSize 分段，每段分配一段连续序号并在一个事务内批量插入
+     * 
+     * @param conversationId 对话ID
+     * @param messages       待导入的消息，按顺序追加到对话末尾
+     * @return 导入的消息数量
      */
-    public List<Message> getConversationContext(Long conversationId) {
-        List<Message> allMessages = messageRepository.findByConversationIdOrderBySequenceNumberAsc(conversationId);
+    public int importMessages(Long conversationId, List<MessageImportRequest.ImportedMessage> messages) {
+        Conversation conversation = conversationService.getConversationById(conversationId)
+                .orElseThrow(() -> new GlobalExceptionHandler.BusinessException("CONVERSATION_NOT_FOUND",
+                        "对话不存在: " + conversationId));
+
+        List<MessageType> types = new ArrayList<>(messages.size());
+        for (MessageImportRequest.ImportedMessage message : messages) {
+            try {
+                types.add(MessageType.fromCode(message.getRole()));
+            } catch (IllegalArgumentException e) {
+                throw new GlobalExceptionHandler.BusinessException("INVALID_MESSAGE_TYPE",
+                        "不支持的消息类型: " + message.getRole());
+            }
+        }
 
-        // 限制历史消息数量，保留最近的消息
-        if (allMessages.size() > maxHistorySize) {
-            return allMessages.subList(allMessages.size() - maxHistorySize, allMessages.size());
+        int imported = 0;
+        for (int from = 0; from < messages.size(); from += importBatchSize) {
+            int to = Math.min(from + importBatchSize, messages.size());
+            int offset = from;
+            imported += sequenceAllocator.allocateAndSave(conversationId, to - from, first -> {
+                LocalDateTime now = LocalDateTime.now();
+                List<Message> batch = new ArrayList<>(to - offset);
+                for (int i = offset; i < to; i++) {
+                    batch.add(newMessage(conversation, messages.get(i).getContent(), types.get(i),
+                            first + i - offset, now, null));
+                }
+                return persistMessages(conversationId, batch).size();
+            });
         }
 
-        return allMessages;
+        contextCache.invalidate(conversationId);
+        log.info("导入对话消息完成: conversationId={}, count={}", conversationId, imported);
+        return imported;
+    }
+
+    /**
+     * 在一个事务中批量插入消息并增量更新对话摘要
+     */
+    private List<Message> persistMessages(Long conversationId, List<Message> messages) {
+        return transactionTemplate.execute(status -> {
+            List<Message> saved = messageRepository.saveAll(messages);
+            conversationService.recordMessagesAdded(conversationId, saved);
+            return saved;
+        });
+    }
+
+    /**
+     * 创建待保存的消息
+     * 
+     * @param tokenCount 已知的Token数（如模型返回的用量），为空时由本地分词器计算
+     */
+    private Message newMessage(Conversation conversation, String content, MessageType messageType,
+            Integer sequence, LocalDateTime timestamp, Integer tokenCount) {
+        Message message = new Message(content, messageType);
+        message.setConversation(conversation);
+        message.setSequenceNumber(sequence);
+        message.setTimestamp(timestamp);
+        message.setTokenCount(tokenCount != null ? tokenCount : tokenizer.countTokens(content));
+        return message;
+    }
+
+    /**
+     * 获取对话上下文
+     * 最新的 maxHistorySize 条消息来自上下文缓存，结果按序号升序；
+     * 实际发送哪些消息由 {@link PromptBuilderService} 按Token预算选择
+     */
+    public List<ContextMessage> getConversationContext(Long conversationId) {
+        return contextCache.getWindow(conversationId);
+    }
+
+    /**
+     * AI回复及模型返回的生成Token数（模型未返回用量时为空）
+     */
+    private record AiReply(String content, Integer generationTokens) {
     }
 
     /**
      * 调用AI模型生成回复
      */
-    private String generateAiResponse(ModelProvider provider, PromptType promptType,
-            List<Message> contextMessages, ChatRequest request) {
+    private AiReply generateAiResponse(ModelProvider provider, PromptType promptType,
+            List<ContextMessage> contextMessages, ChatRequest request) {
         try {
             ChatClient chatClient = chatClientManager.getChatClient(provider);
 
@@ -228,15 +363,16 @@ public class ChatService {
 
             // 使用智能Prompt构建器构建提示词
             Map<String, String> variables = buildVariablesFromContext(promptContext);
-            String promptText = promptBuilderService.buildPrompt(
+            Prompt prompt = promptBuilderService.buildModelPrompt(request.getConversationId(),
                     provider, promptType, contextMessages, request.getMessage(), variables);
 
-            // 创建提示模板
-            PromptTemplate promptTemplate = new PromptTemplate(promptText);
-            Prompt prompt = promptTemplate.create();
-
             // 调用模型生成回复
-            String response = chatClient.prompt(prompt).call().content();
+            org.springframework.ai.chat.model.ChatResponse chatResponse = chatClient.prompt(prompt).call()
+                    .chatResponse();
+            promptMetrics.recordUsage(provider, promptBuilderService.getPromptMode(),
+                    chatResponse.getMetadata() != null ? chatResponse.getMetadata().getUsage() : null);
+            String response = chatResponse.getResult() != null ? chatResponse.getResult().getOutput().getContent()
+                    : null;
 
             if (!StringUtils.hasText(response)) {
                 throw new GlobalExceptionHandler.BusinessException("AI_RESPONSE_EMPTY", "AI模型返回空响应");
@@ -245,7 +381,7 @@ public class ChatService {
             log.debug("AI回复生成成功: provider={}, promptType={}, responseLength={}",
                     provider.getCode(), promptType.getCode(), response.length());
 
-            return response.trim();
+            return new AiReply(response.trim(), generationTokens(chatResponse));
 
         } catch (Exception e) {
             log.error("AI模型调用失败: provider={}, promptType={}", provider.getCode(), promptType.getCode(), e);
@@ -254,6 +390,15 @@ public class ChatService {
         }
     }
 
+    /**
+     * 读取模型返回的生成Token数
+     */
+    private Integer generationTokens(org.springframework.ai.chat.model.ChatResponse chatResponse) {
+        Usage usage = chatResponse.getMetadata() != null ? chatResponse.getMetadata().getUsage() : null;
+        Long tokens = usage != null ? usage.getGenerationTokens() : null;
+        return tokens != null && tokens > 0 ? tokens.intValue() : null;
+    }
+
     /**
      * 从PromptContext构建变量映射
      * 
@@ -411,24 +556,34 @@ public class ChatService {
     }
 
     /**
-     * 获取对话历史
+     * 按序号游标分页获取对话历史
      * 
      * @param conversationId 对话ID
-     * @return 消息列表
+     * @param before         只返回序号小于该值的消息
+     * @param after          只返回序号大于该值的消息
+     * @param size           每页大小
+     * @return 分页结果
      */
-    public List<Message> getConversationHistory(Long conversationId) {
-        return messageRepository.findByConversationIdOrderBySequenceNumberAsc(conversationId);
+    public MessagePage getConversationHistory(Long conversationId, Integer before, Integer after, Integer size) {
+        return conversationService.getMessagePage(conversationId, before, after, size);
     }
 
     /**
      * 流式聊天处理
      * 
+     * <p>
+     * 仅供 /chat/test-stream 调试使用：整个生成期间阻塞等待模型输出，
+     * 因此放在通用异步执行器中，不占用有界的流式聊天执行器。
+     * </p>
+     * 
      * @param request 聊天请求
      * @param emitter SSE发射器
      */
     @Async("taskExecutor")
     public void chatStream(ChatRequest request, SseEmitter emitter) {
         long startTime = System.currentTimeMillis();
+        SseDisconnectSignal disconnect = SseDisconnectSignal.attach(emitter,
+                "conversationId=" + request.getConversationId());
 
         try {
             // 发送开始事件
@@ -458,13 +613,24 @@ public class ChatService {
                             ",\"content\":\"" + escapeJson(userMessage.getContent()) + "\"}"));
 
             // 4. 获取聊天历史上下文
-            List<Message> contextMessages = getConversationContext(conversation.getId());
+            List<ContextMessage> contextMessages = getConversationContext(conversation.getId());
 
             // 5. 智能检测Prompt类型
             PromptType promptType = promptBuilderService.detectPromptType(request.getMessage());
 
             // 6. 流式生成AI回复
-            String aiResponse = generateAiResponseStream(modelProvider, promptType, contextMessages, request, emitter);
+            String aiResponse = generateAiResponseStream(modelProvider, promptType, contextMessages, request, emitter,
+                    disconnect);
+
+            // 客户端已断开：保存已生成的部分内容，不再发送完成事件
+            if (disconnect.isDisconnected()) {
+                if (StringUtils.hasText(aiResponse)) {
+                    saveAssistantMessage(conversation, aiResponse);
+                }
+                log.info("客户端已断开，流式聊天提前结束: conversationId={}, partialLength={}",
+                        conversation.getId(), aiResponse.length());
+                return;
+            }
 
             // 6. 保存AI回复消息
             Message assistantMessage = saveAssistantMessage(conversation, aiResponse);
@@ -483,6 +649,10 @@ public class ChatService {
                     conversation.getId(), responseTime);
 
         } catch (Exception e) {
+            if (disconnect.isDisconnected()) {
+                log.info("客户端已断开，忽略流式处理异常: {}", e.getMessage());
+                return;
+            }
             log.error("流式聊天请求处理失败", e);
             try {
                 emitter.send(SseEmitter.event()
@@ -499,9 +669,11 @@ public class ChatService {
 
     /**
      * 流式生成AI回复
+     * 客户端断开时取消上游订阅，返回已生成的部分内容
      */
     private String generateAiResponseStream(ModelProvider provider, PromptType promptType,
-            List<Message> contextMessages, ChatRequest request, SseEmitter emitter) throws IOException {
+            List<ContextMessage> contextMessages, ChatRequest request, SseEmitter emitter,
+            SseDisconnectSignal disconnect) throws IOException {
         try {
             // 发送AI开始生成事件
             emitter.send(SseEmitter.event()
@@ -522,20 +694,25 @@ public class ChatService {
 
             // 使用智能Prompt构建器构建提示词
             Map<String, String> variables = buildVariablesFromContext(promptContext);
-            String promptText = promptBuilderService.buildPrompt(
+            Prompt prompt = promptBuilderService.buildModelPrompt(request.getConversationId(),
                     provider, promptType, contextMessages, request.getMessage(), variables);
 
             // 使用Spring AI的流式API进行真正的流式调用
             StringBuilder fullResponse = new StringBuilder();
             AtomicInteger chunkIndex = new AtomicInteger(0);
 
-            Flux<String> responseFlux = chatClient.prompt()
-                    .user(promptText)
+            Flux<String> responseFlux = chatClient.prompt(prompt)
                     .stream()
                     .content();
 
-            // 阻塞式处理流式响应
+            // 阻塞式处理流式响应，客户端断开时取消上游订阅
             responseFlux
+                    .doOnCancel(() -> {
+                        log.info("客户端断开，取消AI流式生成: provider={}, reason={}, generatedChunks={}",
+                                provider.getCode(), disconnect.getReason(), chunkIndex.get());
+                        streamMetrics.recordCancelled(disconnect.getReason(), chunkIndex.get());
+                    })
+                    .takeUntilOther(disconnect.asMono())
                     .doOnNext(chunk -> {
                         try {
                             fullResponse.append(chunk);
@@ -545,9 +722,10 @@ public class ChatService {
                                     .name("ai_chunk")
                                     .data("{\"chunk\":\"" + escapeJson(chunk) +
                                             "\",\"index\":" + chunkIndex.incrementAndGet() + "}"));
-                        } catch (IOException e) {
-                            log.error("发送流式数据块失败", e);
-                            throw new RuntimeException(e);
+                        } catch (IOException | IllegalStateException e) {
+                            // 发送失败视为客户端断开
+                            log.warn("发送流式数据块失败: {}", e.getMessage());
+                            disconnect.fire("send_failed");
                         }
                     })
                     .doOnError(error -> {
@@ -567,6 +745,10 @@ public class ChatService {
 
             String response = fullResponse.toString();
 
+            if (disconnect.isDisconnected()) {
+                return response.trim();
+            }
+
             if (!StringUtils.hasText(response)) {
                 throw new GlobalExceptionHandler.BusinessException("AI_RESPONSE_EMPTY", "AI模型返回空响应");
             }
@@ -604,7 +786,10 @@ public class ChatService {
      */
     @Transactional
     public void clearConversationHistory(Long conversationId) {
-        messageRepository.deleteByConversationId(conversationId);
-        log.info("已清空对话历史: conversationId={}", conversationId);
+        int deleted = messageRepository.bulkDeleteByConversationId(conversationId);
+        conversationService.resetMessageSummary(conversationId);
+        sequenceAllocator.reseed(conversationId);
+        contextCache.invalidate(conversationId);
+        log.info("已清空对话历史: conversationId={}, messages={}", conversationId, deleted);
     }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.dreamer.chat.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.dreamer.chat.dto.ContextMessage;
+import com.dreamer.chat.entity.Message;
+import com.dreamer.chat.repository.MessageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 对话上下文缓存
+ *
+ * <p>
+ * 按对话缓存最新的 maxHistorySize 条消息（升序、不可变列表），
+ * 活跃对话的每一轮不再在调用模型前查询历史。缓存按条目数量和空闲时间淘汰；
+ * 消息保存后写穿追加到已缓存的窗口，未缓存的对话在下次读取时从数据库加载。
+ * 追加按序号去重并保持有序，加载与写穿交错时不会出现重复或乱序。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Service
+public class ConversationContextCache {
+
+    private final MessageRepository messageRepository;
+    private final int windowSize;
+    private final Cache<Long, List<ContextMessage>> windows;
+
+    @Autowired
+    public ConversationContextCache(MessageRepository messageRepository, MeterRegistry meterRegistry,
+            @Value("${app.chat.max-history-size:50}") int windowSize,
+            @Value("${app.chat.context.cache.max-conversations:10000}") long maxConversations,
+            @Value("${app.chat.context.cache.expire-minutes:30}") long expireMinutes) {
+        this.messageRepository = messageRepository;
+        this.windowSize = windowSize;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterAccess(Duration.ofMinutes(expireMinutes))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, windows, "chat.context");
+        Gauge.builder("chat.context.cache.hit.ratio", windows, cache -> cache.stats().hitRate())
+                .description("对话上下文缓存命中率")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取对话最新的消息窗口（按序号升序）
+     *
+     * @param conversationId 对话ID
+     * @return 可修改的副本
+     */
+    public List<ContextMessage> getWindow(Long conversationId) {
+        return new ArrayList<>(windows.get(conversationId, this::load));
+    }
+
+    /**
+     * 消息保存成功后写穿到已缓存的窗口
+     *
+     * @param conversationId 对话ID
+     * @param saved          已保存的消息（按序号升序）
+     */
+    public void append(Long conversationId, List<Message> saved) {
+        windows.asMap().computeIfPresent(conversationId, (id, window) -> merge(window, saved));
+    }
+
+    /**
+     * 使对话的缓存失效；处于事务中时在提交后再失效一次，避免并发读取在提交前重新加载旧数据
+     *
+     * @param conversationId 对话ID
+     */
+    public void invalidate(Long conversationId) {
+        windows.invalidate(conversationId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    windows.invalidate(conversationId);
+                }
+            });
+        }
+    }
+
+    private List<ContextMessage> load(Long conversationId) {
+        List<ContextMessage> newestFirst = messageRepository.findRecentContext(
+                conversationId, PageRequest.of(0, windowSize));
+        List<ContextMessage> window = new ArrayList<>(newestFirst);
+        Collections.reverse(window);
+        return Collections.unmodifiableList(window);
+    }
+
+    private List<ContextMessage> merge(List<ContextMessage> window, List<Message> saved) {
+        List<ContextMessage> merged = new ArrayList<>(window.size() + saved.size());
+        merged.addAll(window);
+        for (Message message : saved) {
+            int sequence = message.getSequenceNumber();
+            int index = merged.size();
+            while (index > 0 && merged.get(index - 1).getSequenceNumber() >= sequence) {
+                if (merged.get(index - 1).getSequenceNumber() == sequence) {
+                    // 加载时已包含该消息
+                    index = -1;
+                    break;
+                }
+                index--;
+            }
+            if (index >= 0) {
+                merged.add(index, new ContextMessage(message.getId(), message.getMessageType(),
+                        message.getContent(), sequence, message.getTokenCount()));
+            }
+        }
+        if (merged.size() > windowSize) {
+            merged = merged.subList(merged.size() - windowSize, merged.size());
+        }
+        return Collections.unmodifiableList(new ArrayList<>(merged));
+    }
+}
@@ -0,0 +1,148 @@
+package com.dreamer.chat.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dreamer.chat.repository.ConversationRepository;
+import com.dreamer.chat.repository.MessageRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 已删除对话清理服务
+ * 
+ * <p>
+ * 定期彻底删除软删除（status=DELETED）超过保留期的对话及其消息。
+ * 每次只处理一批对话，消息按固定条数分多个短事务删除，批次之间暂停，
+ * 避免长时间锁住 messages 表，也不会把大量实体加载进持久化上下文。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.chat.purge", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ConversationPurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationPurgeService.class);
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConversationContextCache contextCache;
+    private final Counter purgedConversations;
+    private final Counter purgedMessages;
+
+    @Value("${app.chat.purge.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${app.chat.purge.conversation-batch-size:100}")
+    private int conversationBatchSize;
+
+    @Value("${app.chat.purge.message-batch-size:1000}")
+    private int messageBatchSize;
+
+    @Value("${app.chat.purge.pause-millis:200}")
+    private long pauseMillis;
+
+    @Autowired
+    public ConversationPurgeService(ConversationRepository conversationRepository,
+            MessageRepository messageRepository, TransactionTemplate transactionTemplate,
+            ConversationContextCache contextCache, MeterRegistry meterRegistry) {
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.contextCache = contextCache;
+        this.purgedConversations = Counter.builder("chat.purge.conversations")
+                .description("定期清理彻底删除的对话数")
+                .register(meterRegistry);
+        this.purgedMessages = Counter.builder("chat.purge.messages")
+                .description("定期清理彻底删除的消息数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 定时触发清理
+     */
+    @Scheduled(cron = "${app.chat.purge.cron:0 30 3 * * *}")
+    public void scheduledPurge() {
+        try {
+            purge();
+        } catch (Exception e) {
+            log.error("清理已删除对话失败", e);
+        }
+    }
+
+    /**
+     * 清理软删除超过保留期的对话
+     * 
+     * @return 彻底删除的对话数量
+     */
+    public int purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int conversations = 0;
+        long messages = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> ids = transactionTemplate.execute(status -> conversationRepository
+                    .findPurgeCandidateIds(cutoff, PageRequest.of(0, conversationBatchSize)));
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+
+            // 每个事务最多删除 messageBatchSize 条消息
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(
+                        status -> messageRepository.deletePurgeableMessages(ids, messageBatchSize));
+                messages += deleted;
+                purgedMessages.increment(deleted);
+                if (deleted > 0) {
+                    pause();
+                }
+            } while (deleted >= messageBatchSize && !Thread.currentThread().isInterrupted());
+
+            // 被中断时消息可能未删完，此时删除对话会经外键级联一次性删除剩余消息，留到下次清理
+            if (deleted >= messageBatchSize) {
+                break;
+            }
+
+            int removed = transactionTemplate.execute(status -> conversationRepository.deletePurgeable(ids));
+            ids.forEach(contextCache::invalidate);
+            conversations += removed;
+            purgedConversations.increment(removed);
+
+            if (ids.size() < conversationBatchSize) {
+                break;
+            }
+            pause();
+        }
+
+        if (conversations > 0 || messages > 0) {
+            log.info("清理已删除对话完成: conversations={}, messages={}, cutoff={}", conversations, messages, cutoff);
+        }
+        return conversations;
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
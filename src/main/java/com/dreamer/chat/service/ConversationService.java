@@ -1,23 +1,33 @@
 package com.dreamer.chat.service;
 
 import com.dreamer.chat.config.GlobalExceptionHandler;
+import com.dreamer.chat.dto.ConversationSummary;
+import com.dreamer.chat.dto.MessagePage;
+import com.dreamer.chat.dto.MessageSearchHit;
+import com.dreamer.chat.dto.MessageView;
 import com.dreamer.chat.entity.Conversation;
 import com.dreamer.chat.entity.Message;
 import com.dreamer.chat.enums.ModelProvider;
 import com.dreamer.chat.repository.ConversationRepository;
+import com.dreamer.chat.repository.ConversationSearchRepository;
 import com.dreamer.chat.repository.MessageRepository;
+import com.dreamer.chat.repository.MessageSearchRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,12 +43,32 @@ public class ConversationService {
 
     private static final Logger log = LoggerFactory.getLogger(ConversationService.class);
 
+    /**
+     * 最后消息预览的最大长度，与 conversations.last_message_preview 列宽一致
+     */
+    private static final int PREVIEW_LENGTH = 200;
+
     @Autowired
     private ConversationRepository conversationRepository;
 
     @Autowired
     private MessageRepository messageRepository;
 
+    @Autowired
+    private MessageSearchRepository messageSearchRepository;
+
+    @Autowired
+    private ConversationSearchRepository conversationSearchRepository;
+
+    @Autowired
+    private ConversationContextCache contextCache;
+
+    @Value("${app.chat.history.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.chat.history.max-page-size:200}")
+    private int maxPageSize;
+
     /**
      * 创建新对话
      * 
@@ -108,12 +138,13 @@ public class ConversationService {
      * @param userId 用户ID
      * @return 对话列表
      */
-    public List<Conversation> getUserConversations(String userId) {
+    @Transactional(readOnly = true)
+    public List<ConversationSummary> getUserConversations(String userId) {
         if (!StringUtils.hasText(userId)) {
             throw new GlobalExceptionHandler.BusinessException("INVALID_USER_ID", "用户ID不能为空");
         }
 
-        return conversationRepository.findByUserIdOrderByUpdatedTimeDesc(userId);
+        return conversationRepository.findSummariesByUserId(userId);
     }
 
     /**
@@ -124,13 +155,15 @@ public class ConversationService {
      * @param size   每页大小
      * @return 分页对话列表
      */
-    public Page<Conversation> getUserActiveConversations(String userId, int page, int size) {
+    @Transactional(readOnly = true)
+    public Page<ConversationSummary> getUserActiveConversations(String userId, int page, int size) {
         if (!StringUtils.hasText(userId)) {
             throw new GlobalExceptionHandler.BusinessException("INVALID_USER_ID", "用户ID不能为空");
         }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "updatedTime"));
-        return conversationRepository.findByUserIdAndStatusOrderByUpdatedTimeDesc(userId, "ACTIVE", pageable);
+        // 排序已写在查询中
+        Pageable pageable = PageRequest.of(page, size);
+        return conversationRepository.findSummariesByUserIdAndStatus(userId, "ACTIVE", pageable);
     }
 
     /**
@@ -140,14 +173,13 @@ public class ConversationService {
      * @param limit  限制数量
      * @return 最近对话列表
      */
-    public List<Conversation> getRecentConversations(String userId, int limit) {
+    @Transactional(readOnly = true)
+    public List<ConversationSummary> getRecentConversations(String userId, int limit) {
         if (!StringUtils.hasText(userId)) {
             throw new GlobalExceptionHandler.BusinessException("INVALID_USER_ID", "用户ID不能为空");
         }
 
-        Pageable pageable = PageRequest.of(0, limit);
-        Page<Conversation> page = conversationRepository.findRecentConversations(userId, "ACTIVE", pageable);
-        return page.getContent();
+        return conversationRepository.findRecentSummaries(userId, "ACTIVE", PageRequest.of(0, limit));
     }
 
     /**
@@ -231,13 +263,14 @@ public class ConversationService {
                 .orElseThrow(() -> new GlobalExceptionHandler.BusinessException("CONVERSATION_NOT_FOUND",
                         "对话不存在或无权限访问"));
 
-        // 先删除所有相关消息
-        messageRepository.deleteByConversationId(conversationId);
+        // 先批量删除所有相关消息
+        int deletedMessages = messageRepository.bulkDeleteByConversationId(conversation.getId());
 
-        // 再删除对话
-        conversationRepository.delete(conversation);
+        // 再删除对话（不经过级联，避免加载消息集合）
+        conversationRepository.bulkDeleteById(conversation.getId());
+        contextCache.invalidate(conversationId);
 
-        log.info("彻底删除对话成功: id={}, userId={}", conversationId, userId);
+        log.info("彻底删除对话成功: id={}, userId={}, messages={}", conversationId, userId, deletedMessages);
     }
 
     /**
@@ -266,27 +299,114 @@ public class ConversationService {
         conversation.setUpdatedTime(LocalDateTime.now());
 
         conversationRepository.save(conversation);
+        contextCache.invalidate(conversationId);
 
         log.info("恢复对话成功: id={}, userId={}", conversationId, userId);
     }
 
+    /**
+     * 新增消息后增量更新对话摘要（消息数、最后消息时间与预览、累计Token、更新时间）
+     * 需在保存消息的同一事务中调用
+     * 
+     * @param conversationId 对话ID
+     * @param saved          本次保存的消息（按序号升序）
+     */
+    @Transactional
+    public void recordMessagesAdded(Long conversationId, List<Message> saved) {
+        if (saved.isEmpty()) {
+            return;
+        }
+
+        Message last = saved.get(saved.size() - 1);
+        long tokens = saved.stream()
+                .mapToLong(message -> message.getTokenCount() != null ? message.getTokenCount() : 0)
+                .sum();
+        LocalDateTime lastMessageAt = last.getTimestamp() != null ? last.getTimestamp() : LocalDateTime.now();
+
+        conversationRepository.recordMessagesAdded(conversationId, saved.size(), tokens, lastMessageAt,
+                buildPreview(last.getContent()));
+    }
+
+    /**
+     * 清空消息后重置对话摘要
+     * 
+     * @param conversationId 对话ID
+     */
+    @Transactional
+    public void resetMessageSummary(Long conversationId) {
+        conversationRepository.resetMessageSummary(conversationId, LocalDateTime.now());
+    }
+
+    private String buildPreview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH);
+    }
+
     /**
      * 根据标题搜索对话
+     * 只检索用户的活跃对话，按相关度排序；与消息检索一样不统计总数
      * 
      * @param userId       用户ID
-     * @param titleKeyword 标题关键词
-     * @return 匹配的对话列表
+     * @param titleKeyword 标题关键词（为空时返回最近更新的对话）
+     * @param page         页码（从0开始）
+     * @param size         每页大小
+     * @return 匹配的对话分片
      */
-    public List<Conversation> searchConversationsByTitle(String userId, String titleKeyword) {
+    @Transactional(readOnly = true)
+    public Slice<ConversationSummary> searchConversationsByTitle(String userId, String titleKeyword, int page,
+            int size) {
         if (!StringUtils.hasText(userId)) {
             throw new GlobalExceptionHandler.BusinessException("INVALID_USER_ID", "用户ID不能为空");
         }
 
+        Pageable pageable = searchPageable(page, size);
         if (!StringUtils.hasText(titleKeyword)) {
-            return getUserConversations(userId);
+            return conversationRepository.findSummariesByUserIdAndStatus(userId, "ACTIVE", pageable);
         }
 
-        return conversationRepository.findByTitleContainingAndStatus(titleKeyword, "ACTIVE");
+        return toSlice(conversationSearchRepository.searchByTitle(userId, titleKeyword.trim(), "ACTIVE",
+                (int) pageable.getOffset(), pageable.getPageSize() + 1), pageable);
+    }
+
+    /**
+     * 全文检索用户的消息
+     * 只检索未删除的对话，按相关度降序；不统计总数（全文检索的count代价与检索本身相当）
+     * 
+     * @param userId 用户ID
+     * @param query  检索词
+     * @param page   页码（从0开始）
+     * @param size   每页大小
+     * @return 检索结果分片
+     */
+    @Transactional(readOnly = true)
+    public Slice<MessageSearchHit> searchMessages(String userId, String query, int page, int size) {
+        if (!StringUtils.hasText(userId)) {
+            throw new GlobalExceptionHandler.BusinessException("INVALID_USER_ID", "用户ID不能为空");
+        }
+
+        if (!StringUtils.hasText(query)) {
+            throw new GlobalExceptionHandler.BusinessException("INVALID_QUERY", "检索词不能为空");
+        }
+
+        Pageable pageable = searchPageable(page, size);
+        return toSlice(messageSearchRepository.search(userId, query.trim(),
+                (int) pageable.getOffset(), pageable.getPageSize() + 1), pageable);
+    }
+
+    private Pageable searchPageable(int page, int size) {
+        int limit = size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        return PageRequest.of(Math.max(page, 0), limit);
+    }
+
+    /**
+     * 查询时多取了一条，据此判断是否还有下一页
+     */
+    private <T> Slice<T> toSlice(List<T> rows, Pageable pageable) {
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<T> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        return new SliceImpl<>(content, pageable, hasNext);
     }
 
     /**
@@ -296,6 +416,7 @@ public class ConversationService {
      * @param status 对话状态
      * @return 对话数量
      */
+    @Transactional(readOnly = true)
     public long countUserConversations(String userId, String status) {
         if (!StringUtils.hasText(userId)) {
             return 0;
@@ -305,51 +426,109 @@ public class ConversationService {
     }
 
     /**
-     * 获取对话的详细信息（包含消息）
+     * 获取对话的详细信息（包含最新一页消息）
+     * 更早的消息通过 {@link #getMessagePage} 以 before 游标继续加载
      * 
      * @param conversationId 对话ID
      * @param userId         用户ID（用于安全检查）
      * @return 对话详情
      */
+    @Transactional(readOnly = true)
     public ConversationDetail getConversationDetail(Long conversationId, String userId) {
-        Conversation conversation = getConversationByIdAndUserId(conversationId, userId)
+        ConversationSummary conversation = conversationRepository.findSummaryByIdAndUserId(conversationId, userId)
                 .orElseThrow(() -> new GlobalExceptionHandler.BusinessException("CONVERSATION_NOT_FOUND",
                         "对话不存在或无权限访问"));
 
-        List<Message> messages = messageRepository.findByConversationIdOrderBySequenceNumberAsc(conversationId);
+        MessagePage latestPage = getMessagePage(conversationId, null, null, null);
 
-        return new ConversationDetail(conversation, messages);
+        return new ConversationDetail(conversation, latestPage);
+    }
+
+    /**
+     * 按序号游标分页获取对话消息
+     * 不传游标时返回最新一页；before 向前翻页，after 获取之后的消息（增量同步），二者不能同时指定
+     * 
+     * @param conversationId 对话ID
+     * @param before         只返回序号小于该值的消息
+     * @param after          只返回序号大于该值的消息
+     * @param size           每页大小（为空时使用默认值，不超过上限）
+     * @return 分页结果，消息按序号升序
+     */
+    @Transactional(readOnly = true)
+    public MessagePage getMessagePage(Long conversationId, Integer before, Integer after, Integer size) {
+        if (before != null && after != null) {
+            throw new GlobalExceptionHandler.BusinessException("INVALID_CURSOR", "before和after不能同时指定");
+        }
+
+        int limit = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        // 多取一条用于判断是否还有更多
+        Pageable probe = PageRequest.of(0, limit + 1);
+
+        if (after != null) {
+            List<MessageView> rows = messageRepository.findViewsAfter(conversationId, after, probe);
+            boolean hasMore = rows.size() > limit;
+            return toMessagePage(hasMore ? rows.subList(0, limit) : rows, hasMore, after);
+        }
+
+        List<MessageView> rows = before != null
+                ? messageRepository.findViewsBefore(conversationId, before, probe)
+                : messageRepository.findLatestViews(conversationId, probe);
+        boolean hasMore = rows.size() > limit;
+        List<MessageView> page = new ArrayList<>(hasMore ? rows.subList(0, limit) : rows);
+        Collections.reverse(page);
+        return toMessagePage(page, hasMore, null);
+    }
+
+    private MessagePage toMessagePage(List<MessageView> page, boolean hasMore, Integer after) {
+        Integer beforeCursor = page.isEmpty() ? null : page.get(0).getSequenceNumber();
+        Integer afterCursor = page.isEmpty() ? after : page.get(page.size() - 1).getSequenceNumber();
+        return new MessagePage(page, hasMore, beforeCursor, afterCursor);
     }
 
     /**
      * 对话详情类
      */
     public static class ConversationDetail {
-        private final Conversation conversation;
-        private final List<Message> messages;
+        private final ConversationSummary conversation;
+        private final MessagePage latestPage;
 
-        public ConversationDetail(Conversation conversation, List<Message> messages) {
+        public ConversationDetail(ConversationSummary conversation, MessagePage latestPage) {
             this.conversation = conversation;
-            this.messages = messages;
+            this.latestPage = latestPage;
         }
 
-        public Conversation getConversation() {
+        public ConversationSummary getConversation() {
             return conversation;
         }
 
-        public List<Message> getMessages() {
-            return messages;
+        /**
+         * 最新一页消息（按序号升序）
+         */
+        public List<MessageView> getMessages() {
+            return latestPage.getMessages();
+        }
+
+        /**
+         * 是否还有更早的消息
+         */
+        public boolean isHasMore() {
+            return latestPage.isHasMore();
+        }
+
+        /**
+         * 加载更早消息时使用的 before 游标
+         */
+        public Integer getBeforeCursor() {
+            return latestPage.getBeforeCursor();
         }
 
-        public int getMessageCount() {
-            return messages.size();
+        public long getMessageCount() {
+            return conversation.getMessageCount();
         }
 
         public LocalDateTime getLastMessageTime() {
-            if (messages.isEmpty()) {
-                return conversation.getCreatedTime();
-            }
-            return messages.get(messages.size() - 1).getTimestamp();
+            return conversation.getLastMessageAt() != null ? conversation.getLastMessageAt()
+                    : conversation.getCreatedTime();
         }
     }
-}
\ No newline at end of file
+}
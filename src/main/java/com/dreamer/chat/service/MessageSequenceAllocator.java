@@ -0,0 +1,126 @@
+package com.dreamer.chat.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.dreamer.chat.repository.MessageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 消息序号分配器
+ * 
+ * <p>
+ * 在内存中为每个对话维护一个序号计数器，首次使用时从数据库的最大序号初始化一次，
+ * 之后通过 {@link AtomicInteger} 无锁分配，不再在每次插入前查询MAX。
+ * 计数器保存在有界、按访问过期的缓存中；多实例部署或缓存淘汰导致的序号冲突
+ * 由唯一索引 idx_messages_conversation_sequence 检测，冲突后重新从数据库初始化并重试。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Service
+public class MessageSequenceAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSequenceAllocator.class);
+
+    /**
+     * 序号冲突时的最大尝试次数
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+    private final MessageRepository messageRepository;
+    private final Cache<Long, AtomicInteger> sequences;
+
+    @Autowired
+    public MessageSequenceAllocator(MessageRepository messageRepository,
+            @Value("${app.chat.sequence.max-conversations:10000}") long maxConversations,
+            @Value("${app.chat.sequence.expire-minutes:30}") long expireMinutes) {
+        this.messageRepository = messageRepository;
+        this.sequences = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterAccess(Duration.ofMinutes(expireMinutes))
+                .build();
+    }
+
+    /**
+     * 分配对话的下一个消息序号
+     * 
+     * @param conversationId 对话ID
+     * @return 下一个序号
+     */
+    public int next(Long conversationId) {
+        return next(conversationId, 1);
+    }
+
+    /**
+     * 一次分配连续的多个序号
+     * 
+     * @param conversationId 对话ID
+     * @param count          序号个数
+     * @return 第一个序号，其后 count-1 个序号同样归调用方使用
+     */
+    public int next(Long conversationId, int count) {
+        return sequences.get(conversationId, this::seed).addAndGet(count) - count + 1;
+    }
+
+    /**
+     * 分配序号并执行保存，序号冲突时重新初始化计数器后重试
+     * 
+     * @param conversationId 对话ID
+     * @param saver          使用给定序号执行保存的操作
+     * @param <T>            保存结果类型
+     * @return 保存结果
+     */
+    public <T> T allocateAndSave(Long conversationId, IntFunction<T> saver) {
+        return allocateAndSave(conversationId, 1, saver);
+    }
+
+    /**
+     * 分配连续的多个序号并一次性保存（用于批量写入），序号冲突时整批重试
+     * 
+     * @param conversationId 对话ID
+     * @param count          序号个数
+     * @param saver          以第一个序号为起点执行保存的操作
+     * @param <T>            保存结果类型
+     * @return 保存结果
+     */
+    public <T> T allocateAndSave(Long conversationId, int count, IntFunction<T> saver) {
+        for (int attempt = 1;; attempt++) {
+            int sequence = next(conversationId, count);
+            try {
+                return saver.apply(sequence);
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("消息序号冲突，重新初始化后重试: conversationId={}, sequence={}, attempt={}",
+                        conversationId, sequence, attempt);
+                reseed(conversationId);
+            }
+        }
+    }
+
+    /**
+     * 丢弃对话的计数器，下次分配时从数据库重新初始化
+     * 
+     * @param conversationId 对话ID
+     */
+    public void reseed(Long conversationId) {
+        sequences.invalidate(conversationId);
+    }
+
+    private AtomicInteger seed(Long conversationId) {
+        Integer maxSequence = messageRepository.findMaxSequenceNumberByConversationId(conversationId);
+        return new AtomicInteger(maxSequence == null ? 0 : maxSequence);
+    }
+}
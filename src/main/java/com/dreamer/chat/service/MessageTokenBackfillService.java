@@ -0,0 +1,177 @@
+package com.dreamer.chat.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dreamer.chat.tokenizer.Tokenizer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 消息Token数回填服务
+ *
+ * <p>
+ * 为 token_count 为空的历史消息计算并保存Token数，同时累加到所属对话的 total_tokens。
+ * 按ID升序分段读取（每段 chunkSize 条），段内在独立的ForkJoinPool中按CPU核数并行分词，
+ * 再在一个短事务中批量更新。只处理 token_count 为空的行，中断或重启后从剩余的行继续，无需记录进度。
+ * 进度通过 chat.token.backfill.* 指标和日志输出。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.chat.token-backfill", name = "enabled", havingValue = "true")
+public class MessageTokenBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageTokenBackfillService.class);
+
+    private static final String SELECT_CHUNK = "SELECT id, conversation_id, content FROM messages "
+            + "WHERE token_count IS NULL AND id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_MESSAGE = "UPDATE messages SET token_count = ? "
+            + "WHERE id = ? AND token_count IS NULL";
+    private static final String ADD_CONVERSATION_TOKENS = "UPDATE conversations "
+            + "SET total_tokens = total_tokens + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Tokenizer tokenizer;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+
+    @Value("${app.chat.token-backfill.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${app.chat.token-backfill.parallelism:0}")
+    private int parallelism;
+
+    private record PendingMessage(long id, long conversationId, String content) {
+    }
+
+    @Autowired
+    public MessageTokenBackfillService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            Tokenizer tokenizer, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tokenizer = tokenizer;
+        Gauge.builder("chat.token.backfill.processed", processed, AtomicLong::get)
+                .description("本次回填已处理的消息数")
+                .register(meterRegistry);
+        Gauge.builder("chat.token.backfill.remaining", this, MessageTokenBackfillService::remaining)
+                .description("本次回填剩余的消息数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 应用启动后在后台执行回填
+     */
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        try {
+            backfill();
+        } catch (Exception e) {
+            log.error("消息Token数回填失败，已处理{}条，重启后将从剩余消息继续", processed.get(), e);
+        }
+    }
+
+    /**
+     * 回填所有 token_count 为空的消息
+     *
+     * @return 本次更新的消息数
+     */
+    public long backfill() throws InterruptedException, ExecutionException {
+        Long pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages WHERE token_count IS NULL",
+                Long.class);
+        total.set(pending != null ? pending : 0);
+        processed.set(0);
+        if (total.get() == 0) {
+            return 0;
+        }
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        log.info("开始回填消息Token数: pending={}, chunkSize={}, parallelism={}", total.get(), chunkSize, threads);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long updated = 0;
+        long afterId = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<PendingMessage> chunk = jdbcTemplate.query(SELECT_CHUNK,
+                        (rs, rowNum) -> new PendingMessage(rs.getLong(1), rs.getLong(2), rs.getString(3)),
+                        afterId, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+
+                int[] tokens = pool.submit(() -> chunk.parallelStream()
+                        .mapToInt(message -> tokenizer.countTokens(message.content()))
+                        .toArray()).get();
+                Integer written = transactionTemplate.execute(status -> write(chunk, tokens));
+                updated += written != null ? written : 0;
+
+                afterId = chunk.get(chunk.size() - 1).id();
+                long done = processed.addAndGet(chunk.size());
+                log.info("回填消息Token数进度: {}/{}, lastId={}", done, total.get(), afterId);
+
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        log.info("回填消息Token数完成: updated={}", updated);
+        return updated;
+    }
+
+    /**
+     * 批量写入消息Token数，并把实际更新的行累加到对话的 total_tokens
+     * （并发保存的消息已带Token数，不会被重复累加）
+     */
+    private int write(List<PendingMessage> chunk, int[] tokens) {
+        List<Object[]> args = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            args.add(new Object[] { tokens[i], chunk.get(i).id() });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_MESSAGE, args);
+
+        Map<Long, Long> addedByConversation = new HashMap<>();
+        int written = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                addedByConversation.merge(chunk.get(i).conversationId(), (long) tokens[i], Long::sum);
+                written++;
+            }
+        }
+
+        List<Object[]> totals = addedByConversation.entrySet().stream()
+                .map(entry -> new Object[] { entry.getValue(), entry.getKey() })
+                .toList();
+        jdbcTemplate.batchUpdate(ADD_CONVERSATION_TOKENS, totals);
+        return written;
+    }
+
+    private long remaining() {
+        return Math.max(0, total.get() - processed.get());
+    }
+}
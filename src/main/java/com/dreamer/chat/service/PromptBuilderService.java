@@ -1,24 +1,28 @@
 package com.dreamer.chat.service;
 
-import com.dreamer.chat.entity.Message;
+import com.dreamer.chat.dto.ContextMessage;
 import com.dreamer.chat.entity.PromptTemplate;
 import com.dreamer.chat.enums.MessageType;
 import com.dreamer.chat.enums.ModelProvider;
 import com.dreamer.chat.enums.PromptType;
+import com.dreamer.chat.tokenizer.Tokenizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * 智能Prompt构建服务
@@ -32,12 +36,141 @@ public class PromptBuilderService {
 
     private static final Logger log = LoggerFactory.getLogger(PromptBuilderService.class);
 
-    // 变量替换的正则表达式
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{([^}]+)\\}\\}");
+    /**
+     * 提示词中换行、前缀分隔等格式字符的预留Token数
+     */
+    private static final int FORMAT_OVERHEAD_TOKENS = 16;
+
+    /**
+     * 结构化模式下每条角色消息的格式开销Token数（角色标记与分隔符）
+     */
+    private static final int ROLE_MESSAGE_OVERHEAD_TOKENS = 4;
 
     @Autowired
     private PromptTemplateService promptTemplateService;
 
+    @Autowired
+    private Tokenizer tokenizer;
+
+    @Autowired
+    private PromptHistoryCache promptHistoryCache;
+
+    @Autowired
+    private SystemPromptCache systemPromptCache;
+
+    @Autowired
+    private PromptMetrics promptMetrics;
+
+    @Value("${app.chat.default-max-tokens:2000}")
+    private int defaultMaxTokens;
+
+    @Value("${app.chat.prompt.structured:false}")
+    private boolean structured;
+
+    @Value("${app.chat.tokenizer.estimate-margin-percent:15}")
+    private int estimateMarginPercent;
+
+    /**
+     * 构建发送给模型的Prompt
+     * 按 app.chat.prompt.structured 选择结构化角色消息或单条拼接文本
+     * 
+     * @param conversationId  对话ID（可为空）
+     * @param modelProvider   模型提供商
+     * @param promptType      Prompt类型
+     * @param contextMessages 上下文消息
+     * @param currentMessage  当前用户消息
+     * @param variables       自定义变量
+     * @return Prompt
+     */
+    public Prompt buildModelPrompt(Long conversationId, ModelProvider modelProvider, PromptType promptType,
+            List<ContextMessage> contextMessages, String currentMessage,
+            Map<String, String> variables) {
+        if (structured) {
+            return new Prompt(buildMessages(modelProvider, promptType, contextMessages,
+                    currentMessage, variables));
+        }
+        return new Prompt(buildPrompt(conversationId, modelProvider, promptType, contextMessages, currentMessage,
+                variables));
+    }
+
+    /**
+     * 当前的提示词模式（用于指标标签）
+     * 
+     * @return structured 或 text
+     */
+    public String getPromptMode() {
+        return structured ? "structured" : "text";
+    }
+
+    /**
+     * 构建结构化的角色消息列表
+     * 
+     * <p>
+     * 消息顺序固定为：系统提示词、历史消息（按序号升序）、当前提问。
+     * 系统提示词当天内不变，历史消息只携带原始内容不加角色前缀，
+     * 因此相邻两轮请求除末尾新增的消息外逐字节相同，可命中提供商的前缀缓存。
+     * 系统提示词引用 {@code {{current_time}}} 时，本轮时间加在当前提问开头。
+     * </p>
+     * 
+     * @param modelProvider   模型提供商
+     * @param promptType      Prompt类型
+     * @param contextMessages 上下文消息
+     * @param currentMessage  当前用户消息
+     * @param variables       自定义变量
+     * @return 角色消息列表
+     */
+    public List<Message> buildMessages(ModelProvider modelProvider, PromptType promptType,
+            List<ContextMessage> contextMessages, String currentMessage,
+            Map<String, String> variables) {
+        PromptTemplate template = promptTemplateService.getBestTemplate(modelProvider, promptType).orElse(null);
+
+        // 当前提问已作为最后一条历史消息时不重复发送
+        List<ContextMessage> history = contextMessages;
+        if (!history.isEmpty() && StringUtils.hasText(currentMessage)) {
+            ContextMessage last = history.get(history.size() - 1);
+            if (last.getMessageType() == MessageType.USER && currentMessage.equals(last.getContent())) {
+                history = history.subList(0, history.size() - 1);
+            }
+        }
+        history = selectContext(history, template, modelProvider, currentMessage, ROLE_MESSAGE_OVERHEAD_TOKENS);
+
+        List<Message> messages = new ArrayList<>(history.size() + 3);
+        int prefixTokens = 0;
+
+        if (template != null && StringUtils.hasText(template.getSystemPrompt())) {
+            String systemPrompt = systemPromptCache.get(template, variables);
+            messages.add(new SystemMessage(systemPrompt));
+            prefixTokens += tokenizer.countTokens(systemPrompt) + ROLE_MESSAGE_OVERHEAD_TOKENS;
+        }
+
+        if (template != null && StringUtils.hasText(template.getConversationStarter()) && history.isEmpty()) {
+            StringBuilder starter = new StringBuilder();
+            template.compiledConversationStarter().renderTo(starter, variables, LocalDateTime.now());
+            messages.add(new AssistantMessage(starter.toString().trim()));
+        }
+
+        for (ContextMessage message : history) {
+            messages.add(message.getMessageType() == MessageType.USER
+                    ? new UserMessage(message.getContent())
+                    : new AssistantMessage(message.getContent()));
+            prefixTokens += (message.getTokenCount() != null ? message.getTokenCount()
+                    : tokenizer.countTokens(message.getContent())) + ROLE_MESSAGE_OVERHEAD_TOKENS;
+        }
+
+        if (StringUtils.hasText(currentMessage)) {
+            // 本轮时间只出现在最后一条用户消息中，不影响稳定前缀
+            String timePrefix = template != null && StringUtils.hasText(template.getSystemPrompt())
+                    ? systemPromptCache.currentTimePrefix(template, LocalDateTime.now())
+                    : null;
+            messages.add(new UserMessage(timePrefix != null ? timePrefix + currentMessage : currentMessage));
+        }
+
+        promptMetrics.recordPrefix(modelProvider, prefixTokens);
+        log.debug("构建结构化Prompt完成: provider={}, type={}, messages={}, prefixTokens={}",
+                modelProvider, promptType, messages.size(), prefixTokens);
+        return messages;
+    }
+
     /**
      * 构建完整的Prompt
      * 
@@ -49,7 +182,25 @@ public class PromptBuilderService {
      * @return 构建的Prompt字符串
      */
     public String buildPrompt(ModelProvider modelProvider, PromptType promptType,
-            List<Message> contextMessages, String currentMessage,
+            List<ContextMessage> contextMessages, String currentMessage,
+            Map<String, String> variables) {
+        return buildPrompt(null, modelProvider, promptType, contextMessages, currentMessage, variables);
+    }
+
+    /**
+     * 构建完整的Prompt
+     * 对话ID不为空时历史对话块按对话缓存，每轮只格式化新增的消息
+     * 
+     * @param conversationId  对话ID（为空时不使用历史块缓存）
+     * @param modelProvider   模型提供商
+     * @param promptType      Prompt类型
+     * @param contextMessages 上下文消息
+     * @param currentMessage  当前用户消息
+     * @param variables       自定义变量
+     * @return 构建的Prompt字符串
+     */
+    public String buildPrompt(Long conversationId, ModelProvider modelProvider, PromptType promptType,
+            List<ContextMessage> contextMessages, String currentMessage,
             Map<String, String> variables) {
 
         log.debug("构建Prompt: provider={}, type={}, contextSize={}",
@@ -60,47 +211,54 @@ public class PromptBuilderService {
 
         if (templateOpt.isEmpty()) {
             log.warn("未找到适用模板，使用基础格式: provider={}, type={}", modelProvider, promptType);
-            return buildBasicPrompt(contextMessages, currentMessage);
+            return buildBasicPrompt(selectContext(contextMessages, null, modelProvider, currentMessage,
+                    tokenizer.countTokens("用户：")), currentMessage);
         }
 
         PromptTemplate template = templateOpt.get();
 
-        // 2. 处理上下文长度限制
-        List<Message> processedMessages = limitContextLength(contextMessages, template.getMaxContextLength());
+        String userPrefix = StringUtils.hasText(template.getUserPrefix()) ? template.getUserPrefix() : "用户：";
+        String assistantPrefix = StringUtils.hasText(template.getAssistantPrefix())
+                ? template.getAssistantPrefix()
+                : "助手：";
 
-        // 3. 构建完整Prompt
-        StringBuilder promptBuilder = new StringBuilder();
+        // 2. 按Token预算选择历史消息
+        List<ContextMessage> processedMessages = selectContext(contextMessages, template, modelProvider,
+                currentMessage, Math.max(tokenizer.countTokens(userPrefix), tokenizer.countTokens(assistantPrefix)));
+
+        // 3. 构建完整Prompt（模板已预编译，各部分单遍追加到预估容量的builder中）
+        boolean hasStarter = StringUtils.hasText(template.getConversationStarter()) && processedMessages.isEmpty();
+        LocalDateTime now = LocalDateTime.now();
+
+        StringBuilder promptBuilder = new StringBuilder(estimateLength(template, hasStarter, processedMessages,
+                currentMessage, Math.max(userPrefix.length(), assistantPrefix.length())));
 
         // 3.1 添加系统提示词
         if (StringUtils.hasText(template.getSystemPrompt())) {
-            String systemPrompt = replaceVariables(template.getSystemPrompt(), variables);
-            promptBuilder.append(systemPrompt).append("\n\n");
+            template.compiledSystemPrompt().renderTo(promptBuilder, variables, now);
+            promptBuilder.append("\n\n");
         }
 
         // 3.2 添加对话开始模板
-        if (StringUtils.hasText(template.getConversationStarter()) && processedMessages.isEmpty()) {
-            String starter = replaceVariables(template.getConversationStarter(), variables);
-            promptBuilder.append(starter).append("\n\n");
+        if (hasStarter) {
+            template.compiledConversationStarter().renderTo(promptBuilder, variables, now);
+            promptBuilder.append("\n\n");
         }
 
-        // 3.3 添加历史对话
-        if (!processedMessages.isEmpty()) {
-            String historyPrompt = formatContextMessages(processedMessages, template);
-            promptBuilder.append(historyPrompt).append("\n");
-        }
+        // 3.3 添加历史对话（已渲染的部分从缓存复用）
+        promptHistoryCache.appendTo(promptBuilder, conversationId, processedMessages, userPrefix, assistantPrefix);
 
         // 3.4 添加当前用户消息
         if (StringUtils.hasText(currentMessage)) {
-            String userPrefix = StringUtils.hasText(template.getUserPrefix()) ? template.getUserPrefix() : "用户：";
-            promptBuilder.append(userPrefix).append(" ").append(currentMessage).append("\n");
+            promptBuilder.append(userPrefix).append(' ').append(currentMessage).append('\n');
         }
 
         // 3.5 添加助手前缀
         if (StringUtils.hasText(template.getAssistantPrefix())) {
-            promptBuilder.append(template.getAssistantPrefix()).append(" ");
+            promptBuilder.append(template.getAssistantPrefix()).append(' ');
         }
 
-        String finalPrompt = promptBuilder.toString().trim();
+        String finalPrompt = trim(promptBuilder);
         log.debug("构建完成，Prompt长度: {}", finalPrompt.length());
 
         return finalPrompt;
@@ -113,11 +271,11 @@ public class PromptBuilderService {
      * @param currentMessage  当前消息
      * @return 基础Prompt
      */
-    public String buildBasicPrompt(List<Message> contextMessages, String currentMessage) {
+    public String buildBasicPrompt(List<ContextMessage> contextMessages, String currentMessage) {
         StringBuilder promptBuilder = new StringBuilder();
 
         // 添加历史对话
-        for (Message message : contextMessages) {
+        for (ContextMessage message : contextMessages) {
             String role = message.getMessageType() == MessageType.USER ? "用户" : "助手";
             promptBuilder.append(role).append("：").append(message.getContent()).append("\n");
         }
@@ -193,133 +351,94 @@ public class PromptBuilderService {
     }
 
     /**
-     * 限制上下文长度
-     * 根据模板配置智能截断历史消息
+     * 按Token预算选择历史消息
+     * 预算 = 模型上下文窗口 - 输出预留（max_tokens） - 系统提示词 - 当前消息 - 格式开销，
+     * 模板配置了 maxContextLength 时另以其为历史消息的Token上限；没有模板时输出预留取 default-max-tokens；
+     * 消息已按序号升序排列，从最新消息向前只遍历一次，返回原列表的尾部视图；
+     * 已保存Token数的消息直接使用保存值，不再重复分词
      * 
-     * @param messages  原始消息列表
-     * @param maxLength 最大长度
-     * @return 截断后的消息列表
+     * @param messages       原始消息列表
+     * @param template       模板（可为空）
+     * @param modelProvider  模型提供商
+     * @param currentMessage 当前用户消息
+     * @param prefixTokens   每条消息角色前缀的Token数
+     * @return 选中的消息列表
      */
-    private List<Message> limitContextLength(List<Message> messages, Integer maxLength) {
-        if (maxLength == null || maxLength <= 0 || messages.isEmpty()) {
+    private List<ContextMessage> selectContext(List<ContextMessage> messages, PromptTemplate template,
+            ModelProvider modelProvider, String currentMessage, int prefixTokens) {
+        if (messages.isEmpty()) {
             return messages;
         }
 
-        // 计算总长度
-        int totalLength = messages.stream()
-                .mapToInt(msg -> msg.getContent().length())
-                .sum();
-
-        if (totalLength <= maxLength) {
-            return messages;
+        int reservedForOutput = template != null && template.getMaxTokens() != null
+                ? template.getMaxTokens()
+                : defaultMaxTokens;
+        int inputWindow = modelProvider.getContextWindow() - reservedForOutput;
+        if (tokenizer.isEstimate()) {
+            // 估算分词器可能低估，输入窗口按比例预留误差余量
+            inputWindow -= inputWindow * estimateMarginPercent / 100;
+        }
+        int budget = inputWindow
+                - (template != null ? tokenizer.countTokens(template.getSystemPrompt()) : 0)
+                - tokenizer.countTokens(currentMessage) - prefixTokens - FORMAT_OVERHEAD_TOKENS;
+        if (template != null && template.getMaxContextLength() != null && template.getMaxContextLength() > 0) {
+            budget = Math.min(budget, template.getMaxContextLength());
         }
 
-        // 从最新消息开始保留
-        List<Message> result = messages.stream()
-                .sorted((m1, m2) -> m2.getSequenceNumber().compareTo(m1.getSequenceNumber()))
-                .collect(Collectors.toList());
-
-        int currentLength = 0;
-        int keepCount = 0;
-
-        for (Message message : result) {
-            int messageLength = message.getContent().length();
-            if (currentLength + messageLength <= maxLength) {
-                currentLength += messageLength;
-                keepCount++;
-            } else {
+        int used = 0;
+        int firstKept = messages.size();
+        while (firstKept > 0) {
+            ContextMessage message = messages.get(firstKept - 1);
+            int contentTokens = message.getTokenCount() != null ? message.getTokenCount()
+                    : tokenizer.countTokens(message.getContent());
+            int messageTokens = contentTokens + prefixTokens + 1;
+            if (used + messageTokens > budget) {
                 break;
             }
+            used += messageTokens;
+            firstKept--;
         }
 
-        // 恢复原始顺序
-        return result.subList(0, keepCount).stream()
-                .sorted((m1, m2) -> m1.getSequenceNumber().compareTo(m2.getSequenceNumber()))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * 格式化上下文消息
-     * 
-     * @param messages 消息列表
-     * @param template 模板
-     * @return 格式化后的字符串
-     */
-    private String formatContextMessages(List<Message> messages, PromptTemplate template) {
-        return messages.stream()
-                .map(message -> formatSingleMessage(message, template))
-                .collect(Collectors.joining("\n"));
-    }
-
-    /**
-     * 格式化单个消息
-     * 
-     * @param message  消息
-     * @param template 模板
-     * @return 格式化后的字符串
-     */
-    private String formatSingleMessage(Message message, PromptTemplate template) {
-        String prefix;
-
-        if (message.getMessageType() == MessageType.USER) {
-            prefix = StringUtils.hasText(template.getUserPrefix()) ? template.getUserPrefix() : "用户：";
-        } else {
-            prefix = StringUtils.hasText(template.getAssistantPrefix()) ? template.getAssistantPrefix() : "助手：";
+        if (firstKept > 0) {
+            log.debug("历史消息超出Token预算，保留最新{}条: provider={}, budget={}, used={}",
+                    messages.size() - firstKept, modelProvider, budget, used);
         }
-
-        return prefix + " " + message.getContent();
+        return firstKept == 0 ? messages : messages.subList(firstKept, messages.size());
     }
 
     /**
-     * 替换模板中的变量
-     * 
-     * @param template  模板字符串
-     * @param variables 变量映射
-     * @return 替换后的字符串
+     * 预估Prompt长度，避免StringBuilder多次扩容
      */
-    private String replaceVariables(String template, Map<String, String> variables) {
-        if (!StringUtils.hasText(template)) {
-            return template;
+    private int estimateLength(PromptTemplate template, boolean hasStarter, List<ContextMessage> messages,
+            String currentMessage, int prefixLength) {
+        int length = 16;
+        if (template.getSystemPrompt() != null) {
+            length += template.compiledSystemPrompt().literalLength() + 2;
         }
-
-        String result = template;
-
-        // 内置变量
-        result = result.replace("{{current_time}}", getCurrentTime());
-        result = result.replace("{{current_date}}", getCurrentDate());
-
-        // 自定义变量
-        if (variables != null && !variables.isEmpty()) {
-            Matcher matcher = VARIABLE_PATTERN.matcher(result);
-            StringBuffer sb = new StringBuffer();
-
-            while (matcher.find()) {
-                String variableName = matcher.group(1);
-                String replacement = variables.getOrDefault(variableName, matcher.group(0));
-                matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
-            }
-            matcher.appendTail(sb);
-            result = sb.toString();
+        if (hasStarter) {
+            length += template.compiledConversationStarter().literalLength() + 2;
         }
-
-        return result;
-    }
-
-    /**
-     * 获取当前时间
-     * 
-     * @return 格式化的时间字符串
-     */
-    private String getCurrentTime() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        for (ContextMessage message : messages) {
+            length += prefixLength + message.getContent().length() + 2;
+        }
+        if (currentMessage != null) {
+            length += prefixLength + currentMessage.length() + 2;
+        }
+        return length + prefixLength;
     }
 
     /**
-     * 获取当前日期
-     * 
-     * @return 格式化的日期字符串
+     * 与 String.trim() 语义相同，只复制一次
      */
-    private String getCurrentDate() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+    private static String trim(StringBuilder builder) {
+        int end = builder.length();
+        while (end > 0 && builder.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int start = 0;
+        while (start < end && builder.charAt(start) <= ' ') {
+            start++;
+        }
+        return builder.substring(start, end);
     }
-}
\ No newline at end of file
+}
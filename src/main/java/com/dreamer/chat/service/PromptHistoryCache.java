@@ -0,0 +1,219 @@
+package com.dreamer.chat.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dreamer.chat.dto.ContextMessage;
+import com.dreamer.chat.enums.MessageType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 提示词历史块缓存
+ *
+ * <p>
+ * 按对话缓存已渲染的历史对话块（"前缀 内容\n" 逐条拼接）及每条消息在块中的结束位置，
+ * 每一轮只格式化新增的消息：
+ * </p>
+ * <ul>
+ * <li>命中：本轮选中的已保存消息与缓存完全一致，直接复用</li>
+ * <li>增量：缓存是本轮消息的前缀，或窗口向后滑动（丢弃了最早的若干条），
+ * 截掉头部后追加新消息</li>
+ * <li>重建：角色前缀（模板版本）变化、历史被清空或不连续时重新渲染</li>
+ * </ul>
+ * <p>
+ * 缓存条目以消息ID自校验，无需在消息写入或删除时主动失效；尚未保存的消息（ID为空）不进入缓存，
+ * 每轮单独追加。缓存按字符总量加权淘汰并设置空闲过期，内存有上界。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Service
+public class PromptHistoryCache {
+
+    private final Cache<Long, RenderedHistory> histories;
+    private final Counter hits;
+    private final Counter partialHits;
+    private final Counter misses;
+
+    @Autowired
+    public PromptHistoryCache(MeterRegistry meterRegistry,
+            @Value("${app.chat.prompt-cache.max-chars:67108864}") long maxChars,
+            @Value("${app.chat.prompt-cache.expire-minutes:30}") long expireMinutes) {
+        this.histories = Caffeine.newBuilder()
+                .maximumWeight(maxChars)
+                .weigher((Long id, RenderedHistory history) -> history.text().length())
+                .expireAfterAccess(Duration.ofMinutes(expireMinutes))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, histories, "chat.prompt.history");
+        this.hits = counter(meterRegistry, "hit");
+        this.partialHits = counter(meterRegistry, "partial");
+        this.misses = counter(meterRegistry, "miss");
+        Gauge.builder("chat.prompt.history.hit.ratio", this, PromptHistoryCache::hitRatio)
+                .description("提示词历史块复用率（命中与增量命中占比）")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 将历史对话块追加到提示词
+     *
+     * @param out             提示词
+     * @param conversationId  对话ID（为空时不使用缓存）
+     * @param messages        本轮选中的历史消息（按序号升序，未保存的消息在末尾）
+     * @param userPrefix      用户前缀
+     * @param assistantPrefix 助手前缀
+     */
+    public void appendTo(StringBuilder out, Long conversationId, List<ContextMessage> messages,
+            String userPrefix, String assistantPrefix) {
+        int persisted = 0;
+        while (persisted < messages.size() && messages.get(persisted).getId() != null) {
+            persisted++;
+        }
+
+        if (conversationId == null || persisted == 0) {
+            render(out, messages, 0, messages.size(), userPrefix, assistantPrefix);
+            return;
+        }
+
+        RenderedHistory history = resolve(conversationId, messages.subList(0, persisted), userPrefix,
+                assistantPrefix);
+        out.append(history.text());
+        render(out, messages, persisted, messages.size(), userPrefix, assistantPrefix);
+    }
+
+    /**
+     * 缓存的对话数
+     */
+    public long size() {
+        return histories.estimatedSize();
+    }
+
+    private RenderedHistory resolve(Long conversationId, List<ContextMessage> messages, String userPrefix,
+            String assistantPrefix) {
+        RenderedHistory cached = histories.getIfPresent(conversationId);
+        int dropped = cached != null ? cached.overlap(messages, userPrefix, assistantPrefix) : -1;
+
+        if (dropped == 0 && cached.ids().length == messages.size()) {
+            hits.increment();
+            return cached;
+        }
+
+        RenderedHistory history;
+        if (dropped >= 0) {
+            partialHits.increment();
+            history = cached.slide(dropped, messages, userPrefix, assistantPrefix);
+        } else {
+            misses.increment();
+            history = RenderedHistory.render(messages, userPrefix, assistantPrefix);
+        }
+        histories.put(conversationId, history);
+        return history;
+    }
+
+    private double hitRatio() {
+        double reused = hits.count() + partialHits.count();
+        double total = reused + misses.count();
+        return total == 0 ? 0 : reused / total;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("chat.prompt.history.lookups")
+                .description("提示词历史块查找次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static void render(StringBuilder out, List<ContextMessage> messages, int from, int to,
+            String userPrefix, String assistantPrefix) {
+        for (int i = from; i < to; i++) {
+            ContextMessage message = messages.get(i);
+            String prefix = message.getMessageType() == MessageType.USER ? userPrefix : assistantPrefix;
+            out.append(prefix).append(' ').append(message.getContent()).append('\n');
+        }
+    }
+
+    /**
+     * 已渲染的历史块
+     *
+     * @param userPrefix      渲染时的用户前缀
+     * @param assistantPrefix 渲染时的助手前缀
+     * @param ids             块中消息的ID（升序）
+     * @param ends            每条消息在块中的结束位置
+     * @param text            渲染结果
+     */
+    private record RenderedHistory(String userPrefix, String assistantPrefix, long[] ids, int[] ends,
+            String text) {
+
+        static RenderedHistory render(List<ContextMessage> messages, String userPrefix, String assistantPrefix) {
+            return build(userPrefix, assistantPrefix, new StringBuilder(), new long[messages.size()],
+                    new int[messages.size()], 0, messages);
+        }
+
+        /**
+         * 本轮消息与缓存的重叠关系
+         *
+         * @return 缓存头部需丢弃的消息数；无法复用时返回 -1
+         */
+        int overlap(List<ContextMessage> messages, String userPrefix, String assistantPrefix) {
+            if (!this.userPrefix.equals(userPrefix) || !this.assistantPrefix.equals(assistantPrefix)) {
+                return -1;
+            }
+            long firstId = messages.get(0).getId();
+            int dropped = 0;
+            while (dropped < ids.length && ids[dropped] != firstId) {
+                dropped++;
+            }
+            int kept = ids.length - dropped;
+            if (kept == 0 || kept > messages.size()) {
+                return -1;
+            }
+            for (int i = 1; i < kept; i++) {
+                if (ids[dropped + i] != messages.get(i).getId()) {
+                    return -1;
+                }
+            }
+            return dropped;
+        }
+
+        /**
+         * 丢弃头部 dropped 条消息并追加本轮新增的消息
+         */
+        RenderedHistory slide(int dropped, List<ContextMessage> messages, String userPrefix,
+                String assistantPrefix) {
+            int kept = ids.length - dropped;
+            int offset = dropped == 0 ? 0 : ends[dropped - 1];
+            long[] newIds = new long[messages.size()];
+            int[] newEnds = new int[messages.size()];
+            System.arraycopy(ids, dropped, newIds, 0, kept);
+            for (int i = 0; i < kept; i++) {
+                newEnds[i] = ends[dropped + i] - offset;
+            }
+
+            StringBuilder builder = new StringBuilder(text.length() - offset + 64 * (messages.size() - kept));
+            builder.append(text, offset, text.length());
+            return build(userPrefix, assistantPrefix, builder, newIds, newEnds, kept, messages);
+        }
+
+        private static RenderedHistory build(String userPrefix, String assistantPrefix, StringBuilder builder,
+                long[] ids, int[] ends, int from, List<ContextMessage> messages) {
+            for (int i = from; i < messages.size(); i++) {
+                PromptHistoryCache.render(builder, messages, i, i + 1, userPrefix, assistantPrefix);
+                ids[i] = messages.get(i).getId();
+                ends[i] = builder.length();
+            }
+            return new RenderedHistory(userPrefix, assistantPrefix, ids, ends, builder.toString());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.dreamer.chat.service;
+
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.dreamer.chat.enums.ModelProvider;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 提示词Token指标
+ *
+ * <p>
+ * 按模型提供商和提示词模式（text：单条拼接文本，structured：系统/用户/助手角色消息）记录：
+ * </p>
+ * <ul>
+ * <li>{@code chat.prompt.tokens}：模型返回的输入Token数（流式接口不返回用量时不记录）</li>
+ * <li>{@code chat.prompt.prefix.tokens}：结构化模式下当前提问之前的稳定前缀Token数，
+ * 即提供商前缀缓存可命中的上限</li>
+ * </ul>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Component
+public class PromptMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public PromptMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 记录模型返回的输入Token数
+     *
+     * @param provider 模型提供商
+     * @param mode     提示词模式
+     * @param usage    模型返回的用量（可为空）
+     */
+    public void recordUsage(ModelProvider provider, String mode, Usage usage) {
+        Long promptTokens = usage != null ? usage.getPromptTokens() : null;
+        if (promptTokens == null || promptTokens <= 0) {
+            return;
+        }
+        DistributionSummary.builder("chat.prompt.tokens")
+                .description("模型返回的输入Token数")
+                .baseUnit("tokens")
+                .tag("provider", provider.getCode())
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(promptTokens);
+    }
+
+    /**
+     * 记录结构化提示词的稳定前缀Token数
+     *
+     * @param provider     模型提供商
+     * @param prefixTokens 系统提示词与历史消息的Token数
+     */
+    public void recordPrefix(ModelProvider provider, int prefixTokens) {
+        DistributionSummary.builder("chat.prompt.prefix.tokens")
+                .description("结构化提示词中当前提问之前的稳定前缀Token数")
+                .baseUnit("tokens")
+                .tag("provider", provider.getCode())
+                .register(meterRegistry)
+                .record(prefixTokens);
+    }
+}
@@ -4,14 +4,17 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
@@ -19,14 +22,22 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.dreamer.chat.config.AiModelConfig;
 import com.dreamer.chat.config.GlobalExceptionHandler;
 import com.dreamer.chat.dto.ChatRequest;
+import com.dreamer.chat.dto.ContextMessage;
 import com.dreamer.chat.dto.PromptContext;
 import com.dreamer.chat.entity.Conversation;
 import com.dreamer.chat.entity.Message;
 import com.dreamer.chat.enums.ModelProvider;
 import com.dreamer.chat.enums.PromptType;
+import com.dreamer.chat.stream.ChunkCoalescer;
+import com.dreamer.chat.stream.GenerationRegistry;
+import com.dreamer.chat.stream.GenerationStream;
+import com.dreamer.chat.stream.SseDisconnectSignal;
+import com.dreamer.chat.stream.SseEventEncoder;
+import com.dreamer.chat.stream.StreamMetrics;
 import com.dreamer.chat.util.JsonUtils;
 
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * 流式聊天处理服务
@@ -43,144 +54,305 @@ public class StreamChatService {
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private ConversationService conversationService;
+
     @Autowired
     private AiModelConfig.ChatClientManager chatClientManager;
 
     @Autowired
     private PromptBuilderService promptBuilderService;
 
+    @Autowired
+    @Qualifier("streamChatExecutor")
+    private Executor streamChatExecutor;
+
+    @Autowired
+    private StreamMetrics streamMetrics;
+
+    @Autowired
+    private GenerationRegistry generationRegistry;
+
     @Value("${app.chat.timeout-seconds:30}")
     private int timeoutSeconds;
 
+    @Value("${app.chat.stream.coalesce.max-bytes:64}")
+    private int coalesceMaxBytes;
+
+    @Value("${app.chat.stream.coalesce.max-delay-ms:30}")
+    private long coalesceMaxDelayMs;
+
     /**
      * 异步处理流式聊天请求
      * 
+     * <p>
+     * 准备阶段（校验、保存用户消息、构建提示词）在流式聊天专用执行器中执行；模型的流式输出通过回调
+     * 写入本次生成的 {@link GenerationStream}，再由其分发给SseEmitter；AI回复的持久化作为完成阶段串联在流结束之后。
+     * 生成期间不会有线程阻塞等待模型输出。每个事件都带有递增的事件ID，客户端断线后可通过
+     * {@link #resumeStream} 按 Last-Event-ID 续传；所有连接断开超过宽限期后才取消上游模型调用，
+     * 已生成的部分内容仍会保存。
+     * </p>
+     * 
+     * <p>
+     * 完成阶段由模型流结束的回调触发，执行器拒绝时改在触发线程中执行（见 {@link #executeCompletion}），
+     * 保证AI回复一定被保存、终止事件一定发出、注册表条目一定结束。
+     * </p>
+     * 
      * @param request 聊天请求
      * @param emitter SSE发射器
      * @return 异步处理结果
      */
-    @Async("taskExecutor")
     public CompletableFuture<Void> processStreamChatAsync(ChatRequest request, SseEmitter emitter) {
-        return CompletableFuture.runAsync(() -> {
-            long startTime = System.currentTimeMillis();
-
-            try {
-                // 发送开始事件
-                sendSseEvent(emitter, "start", JsonUtils.createSseEventData(
-                        "status", "processing",
-                        "message", "开始处理请求"));
+        long startTime = System.currentTimeMillis();
+        GenerationStream stream = generationRegistry.create();
+        stream.attach(emitter, 0L);
 
-                // 1. 验证和准备数据（同步部分）
-                ModelProvider modelProvider = chatService.validateAndGetModelProvider(request.getModelProvider());
-                Conversation conversation = chatService.getOrCreateConversation(request, modelProvider);
-                Message userMessage = chatService.saveUserMessage(conversation, request.getMessage());
-
-                // 发送对话和用户消息确认事件
-                sendConversationEvents(emitter, conversation, userMessage);
-
-                // 2. 获取上下文消息
-                List<Message> contextMessages = chatService.getConversationContext(conversation.getId());
+        try {
+            return CompletableFuture.supplyAsync(() -> prepareStream(request, stream), streamChatExecutor)
+                    .thenCompose(this::executeStreamingCall)
+                    .thenAcceptAsync(context -> {
+                        if (context.isCancelled()) {
+                            savePartialResponse(context);
+                            generationRegistry.complete(stream);
+                            return;
+                        }
+                        Message assistantMessage = chatService.saveAssistantMessage(
+                                context.getConversation(), context.getResponse());
+                        sendCompletionEvent(stream, assistantMessage, context, startTime);
+                    }, this::executeCompletion)
+                    .exceptionallyAsync(throwable -> {
+                        if (stream.getCancelSignal().isDisconnected()) {
+                            log.info("客户端已断开，忽略流式处理异常: {}", unwrap(throwable).getMessage());
+                            generationRegistry.complete(stream);
+                        } else {
+                            handleStreamError(stream, unwrap(throwable), startTime);
+                        }
+                        return null;
+                    }, this::executeCompletion);
+        } catch (RejectedExecutionException e) {
+            // 执行器已满，直接告知客户端稍后重试
+            handleStreamError(stream, new GlobalExceptionHandler.BusinessException("STREAM_BUSY",
+                    "当前请求过多，请稍后重试"), startTime);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
 
-                // 3. 检测Prompt类型
-                PromptType promptType = promptBuilderService.detectPromptType(request.getMessage());
+    /**
+     * 执行完成阶段：优先派发到流式聊天执行器，执行器已满时在当前线程执行
+     * 
+     * <p>
+     * 完成阶段不能像准备阶段那样直接以繁忙错误结束：此时模型已生成完毕，
+     * 拒绝异常会在Reactor的完成回调中抛出并被吞掉，回复不会保存，连接和注册表条目也不会结束。
+     * </p>
+     */
+    private void executeCompletion(Runnable task) {
+        try {
+            streamChatExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("流式聊天执行器已满，在当前线程执行完成阶段");
+            task.run();
+        }
+    }
 
-                // 4. 流式生成AI回复
-                String aiResponse = generateStreamingResponse(
-                        modelProvider, promptType, contextMessages, request, conversation, emitter);
+    /**
+     * 断线重连：重放 Last-Event-ID 之后的事件并接入实时输出
+     * 
+     * @param streamId    流ID（start事件中返回）
+     * @param lastEventId 客户端最后收到的事件ID
+     * @param emitter     新的SSE发射器
+     */
+    public void resumeStream(String streamId, long lastEventId, SseEmitter emitter) {
+        GenerationStream stream = generationRegistry.find(streamId).orElse(null);
+        if (stream == null) {
+            log.info("续传的流不存在或已过期: streamId={}", streamId);
+            try {
+                sendSseEvent(emitter, "error", JsonUtils.createSseEventData(
+                        "error", "流不存在或已过期",
+                        "code", "STREAM_NOT_FOUND"));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+            return;
+        }
 
-                // 5. 保存AI回复（异步事务）
-                Message assistantMessage = chatService.saveAssistantMessage(conversation, aiResponse);
+        boolean attached = stream.attach(emitter, lastEventId);
+        log.info("客户端续传流: streamId={}, lastEventId={}, attached={}", streamId, lastEventId, attached);
+    }
 
-                // 6. 发送完成事件
-                sendCompletionEvent(emitter, assistantMessage, startTime);
+    /**
+     * 观察对话当前的流式生成
+     * 
+     * <p>
+     * 从头重放该对话最近一次生成的事件并接入实时输出，用于同一对话在其他标签页或设备上同步显示，
+     * 不会再次调用模型。对话没有进行中或近期完成的生成时发送 no_active_stream 事件并结束连接。
+     * 对话不属于该用户时发送 CONVERSATION_NOT_FOUND 错误事件，不接入任何生成。
+     * </p>
+     * 
+     * @param conversationId 对话ID
+     * @param userId         用户ID（用于权限校验）
+     * @param emitter        SSE发射器
+     */
+    public void observeConversation(Long conversationId, String userId, SseEmitter emitter) {
+        if (conversationService.getConversationByIdAndUserId(conversationId, userId).isEmpty()) {
+            log.info("拒绝观察对话流，对话不存在或无权限: conversationId={}, userId={}", conversationId, userId);
+            try {
+                sendSseEvent(emitter, "error", JsonUtils.createSseEventData(
+                        "error", "对话不存在或无权限访问",
+                        "code", "CONVERSATION_NOT_FOUND"));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+            return;
+        }
 
-            } catch (Exception e) {
-                handleStreamError(emitter, e, startTime);
+        GenerationStream stream = generationRegistry.findByConversation(conversationId).orElse(null);
+        if (stream == null) {
+            try {
+                sendSseEvent(emitter, "no_active_stream", JsonUtils.createSseEventData(
+                        "conversationId", conversationId));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
             }
-        });
+            return;
+        }
+
+        boolean attached = stream.attach(emitter, 0L);
+        log.info("观察者订阅对话流: conversationId={}, streamId={}, attached={}, subscribers={}",
+                conversationId, stream.getStreamId(), attached, stream.getSubscriberCount());
     }
 
     /**
-     * 生成流式AI响应
+     * 准备流式调用：校验参数、保存用户消息并构建提示词
      */
-    private String generateStreamingResponse(ModelProvider provider, PromptType promptType,
-            List<Message> contextMessages, ChatRequest request, Conversation conversation, SseEmitter emitter)
-            throws IOException {
+    private StreamContext prepareStream(ChatRequest request, GenerationStream stream) {
+        SseEventEncoder encoder = new SseEventEncoder();
 
-        try {
-            // 发送AI开始生成事件
-            sendSseEvent(emitter, "ai_start", JsonUtils.createSseEventData(
-                    "provider", provider.getCode(),
-                    "model", provider.getModel(),
-                    "promptType", promptType.getCode()));
+        // 发送开始事件
+        stream.publish("start", encoder.start("processing", "开始处理请求", stream.getStreamId()));
 
-            // 创建ChatClient实例
-            ChatClient chatClient = chatClientManager.getChatClient(provider);
-            // 构建提示词上下文
-            PromptContext promptContext = chatService.buildPromptContext(request, conversation);
-            Map<String, String> variables = chatService.buildVariablesFromContext(promptContext);
-            String promptText = promptBuilderService.buildPrompt(
-                    provider, promptType, contextMessages, request.getMessage(), variables);
+        // 1. 验证和准备数据
+        ModelProvider modelProvider = chatService.validateAndGetModelProvider(request.getModelProvider());
+        Conversation conversation = chatService.getOrCreateConversation(request, modelProvider);
+        Message userMessage = chatService.saveUserMessage(conversation, request.getMessage());
+        generationRegistry.bindConversation(stream, conversation.getId());
 
-            // 执行流式调用
-            return executeStreamingCall(chatClient, promptText, emitter);
+        // 发送对话和用户消息确认事件
+        sendConversationEvents(stream, conversation, userMessage);
 
-        } catch (Exception e) {
-            log.error("AI流式生成失败: provider={}, promptType={}", provider.getCode(), promptType.getCode(), e);
-            throw new GlobalExceptionHandler.BusinessException("AI_STREAM_FAILED",
-                    "AI流式生成失败: " + e.getMessage());
-        }
+        // 2. 获取上下文消息
+        List<ContextMessage> contextMessages = chatService.getConversationContext(conversation.getId());
+
+        // 3. 检测Prompt类型
+        PromptType promptType = promptBuilderService.detectPromptType(request.getMessage());
+
+        // 发送AI开始生成事件
+        stream.publish("ai_start", encoder.aiStart(
+                modelProvider.getCode(), modelProvider.getModel(), promptType.getCode()));
+
+        // 4. 构建提示词上下文
+        PromptContext promptContext = chatService.buildPromptContext(request, conversation);
+        Map<String, String> variables = chatService.buildVariablesFromContext(promptContext);
+        Prompt prompt = promptBuilderService.buildModelPrompt(conversation.getId(),
+                modelProvider, promptType, contextMessages, request.getMessage(), variables);
+
+        return new StreamContext(modelProvider, promptType, conversation, prompt, encoder, stream);
     }
 
     /**
      * 执行实际的流式调用
+     * 
+     * <p>
+     * 订阅模型返回的Flux，数据块经合并器按大小/时间窗口合并后发布到生成流，
+     * 流结束时发出剩余缓冲并完成返回的Future，不阻塞任何线程。
+     * 订阅通过 {@code takeUntilOther} 绑定生成流的取消信号，所有客户端断开超过宽限期后
+     * 取消上游订阅并以取消状态完成。
+     * </p>
      */
-    private String executeStreamingCall(ChatClient chatClient, String promptText, SseEmitter emitter)
-            throws IOException {
-
-        StringBuilder fullResponse = new StringBuilder();
-        AtomicInteger chunkIndex = new AtomicInteger(0);
+    private CompletableFuture<StreamContext> executeStreamingCall(StreamContext context) {
+        CompletableFuture<StreamContext> future = new CompletableFuture<>();
+        ModelProvider provider = context.getProvider();
+        GenerationStream stream = context.getStream();
+        SseDisconnectSignal disconnect = stream.getCancelSignal();
+        ChunkCoalescer coalescer = new ChunkCoalescer(coalesceMaxBytes, coalesceMaxDelayMs, Schedulers.parallel(),
+                (text, frameIndex) -> stream.publishContent("ai_chunk",
+                        context.getEncoder().chunk(text, frameIndex), text, frameIndex));
+        context.setCoalescer(coalescer);
 
         try {
+            ChatClient chatClient = chatClientManager.getChatClient(provider);
+
             // 使用Spring AI的流式API
-            Flux<String> responseFlux = chatClient.prompt()
-                    .user(promptText)
+            Flux<String> responseFlux = chatClient.prompt(context.getPrompt())
                     .stream()
                     .content();
 
-            // 处理流式响应
             responseFlux
-                    .doOnNext(chunk -> processChunk(chunk, fullResponse, chunkIndex, emitter))
-                    .doOnError(error -> handleStreamingError(error, emitter))
-                    .doOnComplete(() -> log.debug("流式响应完成，总长度: {}", fullResponse.length()))
-                    .blockLast(); // 等待流式处理完成
-
-            String response = fullResponse.toString();
-
-            if (!StringUtils.hasText(response)) {
-                throw new GlobalExceptionHandler.BusinessException("AI_RESPONSE_EMPTY", "AI模型返回空响应");
-            }
-
-            log.debug("AI流式回复生成成功，响应长度: {}", response.length());
-            return response.trim();
+                    .doOnCancel(() -> {
+                        log.info("客户端断开，取消AI流式生成: provider={}, reason={}, generatedChunks={}",
+                                provider.getCode(), disconnect.getReason(), coalescer.getChunkCount());
+                        streamMetrics.recordCancelled(disconnect.getReason(), coalescer.getChunkCount());
+                    })
+                    .takeUntilOther(disconnect.asMono())
+                    .subscribe(
+                        chunk -> processChunk(chunk, context),
+                        error -> {
+                            coalescer.close();
+                            log.error("AI流式生成失败: provider={}, promptType={}",
+                                    provider.getCode(), context.getPromptType().getCode(), error);
+                            future.completeExceptionally(new GlobalExceptionHandler.BusinessException(
+                                    "AI_STREAM_FAILED", "AI流式生成失败: " + error.getMessage()));
+                        },
+                        () -> {
+                            log.debug("流式响应完成，总长度: {}", context.getResponseLength());
+                            if (disconnect.isDisconnected()) {
+                                coalescer.close();
+                                context.markCancelled();
+                                future.complete(context);
+                                return;
+                            }
+                            if (!StringUtils.hasText(context.getResponse())) {
+                                coalescer.close();
+                                future.completeExceptionally(new GlobalExceptionHandler.BusinessException(
+                                        "AI_RESPONSE_EMPTY", "AI模型返回空响应"));
+                                return;
+                            }
+                            try {
+                                // 发出合并器中剩余的内容
+                                coalescer.flush();
+                                streamMetrics.recordFrames(coalescer);
+                                future.complete(context);
+                            } catch (Exception e) {
+                                if (disconnect.isDisconnected()) {
+                                    context.markCancelled();
+                                    future.complete(context);
+                                } else {
+                                    future.completeExceptionally(e);
+                                }
+                            }
+                        });
 
         } catch (Exception e) {
-            log.error("执行流式调用失败", e);
-            throw e;
+            coalescer.close();
+            log.error("执行流式调用失败: provider={}", provider.getCode(), e);
+            future.completeExceptionally(new GlobalExceptionHandler.BusinessException("AI_STREAM_FAILED",
+                    "AI流式生成失败: " + e.getMessage()));
         }
+
+        return future;
     }
 
     /**
      * 处理单个数据块
      */
-    private void processChunk(String chunk, StringBuilder fullResponse, AtomicInteger chunkIndex, SseEmitter emitter) {
+    private void processChunk(String chunk, StreamContext context) {
         try {
-            fullResponse.append(chunk);
+            context.append(chunk);
 
-            // 发送流式数据块
-            sendSseEvent(emitter, "ai_chunk", JsonUtils.createSseEventData(
-                    "chunk", chunk,
-                    "index", chunkIndex.incrementAndGet()));
+            // 交给合并器，达到大小或时间窗口后才发送ai_chunk事件
+            context.getCoalescer().add(chunk);
 
         } catch (Exception e) {
             log.error("发送流式数据块失败", e);
@@ -188,33 +360,18 @@ public class StreamChatService {
         }
     }
 
-    /**
-     * 处理流式过程中的错误
-     */
-    private void handleStreamingError(Throwable error, SseEmitter emitter) {
-        log.error("流式处理过程中发生错误", error);
-        try {
-            sendSseEvent(emitter, "error", JsonUtils.createSseEventData(
-                    "error", "流式处理失败: " + error.getMessage(),
-                    "timestamp", System.currentTimeMillis()));
-        } catch (IOException e) {
-            log.error("发送流式错误事件失败", e);
-        }
-    }
-
     /**
      * 发送对话相关事件
      */
-    private void sendConversationEvents(SseEmitter emitter, Conversation conversation, Message userMessage)
-            throws IOException {
+    private void sendConversationEvents(GenerationStream stream, Conversation conversation, Message userMessage) {
 
         // 发送对话信息
-        sendSseEvent(emitter, "conversation", JsonUtils.createSseEventData(
+        stream.publish("conversation", JsonUtils.createSseEventData(
                 "conversationId", conversation.getId(),
                 "title", conversation.getTitle()));
 
         // 发送用户消息确认
-        sendSseEvent(emitter, "user_message", JsonUtils.createSseEventData(
+        stream.publish("user_message", JsonUtils.createSseEventData(
                 "messageId", userMessage.getId(),
                 "content", userMessage.getContent()));
     }
@@ -222,37 +379,58 @@ public class StreamChatService {
     /**
      * 发送完成事件
      */
-    private void sendCompletionEvent(SseEmitter emitter, Message assistantMessage, long startTime)
-            throws IOException {
-
+    private void sendCompletionEvent(GenerationStream stream, Message assistantMessage, StreamContext context,
+            long startTime) {
         long responseTime = System.currentTimeMillis() - startTime;
-        sendSseEvent(emitter, "complete", JsonUtils.createSseEventData(
-                "messageId", assistantMessage.getId(),
-                "responseTime", responseTime,
-                "status", "success"));
-        emitter.complete();
+        ChunkCoalescer coalescer = context.getCoalescer();
+
+        stream.publish("complete", context.getEncoder().complete(
+                assistantMessage.getId(),
+                responseTime,
+                coalescer.getFrameCount(),
+                Math.round(coalescer.getFramesPerSecond() * 10) / 10.0));
+        generationRegistry.complete(stream);
+
+        log.info("流式聊天请求处理完成，响应时间: {}ms，数据块: {}，帧数: {}", responseTime,
+                coalescer.getChunkCount(), coalescer.getFrameCount());
+    }
 
-        log.info("流式聊天请求处理完成，响应时间: {}ms", responseTime);
+    /**
+     * 保存客户端断开前已生成的部分回复，不再发送完成事件
+     */
+    private void savePartialResponse(StreamContext context) {
+        String partial = context.getResponse();
+        if (!StringUtils.hasText(partial)) {
+            log.info("客户端断开，无已生成内容需要保存: conversationId={}", context.getConversation().getId());
+            return;
+        }
+        chatService.saveAssistantMessage(context.getConversation(), partial);
+        log.info("客户端断开，已保存部分回复: conversationId={}, length={}",
+                context.getConversation().getId(), partial.length());
     }
 
     /**
      * 处理流式聊天错误
      */
-    private void handleStreamError(SseEmitter emitter, Exception e, long startTime) {
+    private void handleStreamError(GenerationStream stream, Throwable e, long startTime) {
         log.error("流式聊天请求处理失败", e);
 
-        try {
-            long errorTime = System.currentTimeMillis() - startTime;
-            sendSseEvent(emitter, "error", JsonUtils.createSseEventData(
-                    "error", e.getMessage(),
-                    "timestamp", System.currentTimeMillis(),
-                    "responseTime", errorTime));
-            emitter.complete();
-
-        } catch (IOException ioException) {
-            log.error("发送错误事件失败", ioException);
-            emitter.completeWithError(ioException);
+        long errorTime = System.currentTimeMillis() - startTime;
+        stream.publish("error", JsonUtils.createSseEventData(
+                "error", e.getMessage(),
+                "timestamp", System.currentTimeMillis(),
+                "responseTime", errorTime));
+        generationRegistry.complete(stream);
+    }
+
+    /**
+     * 解开CompletableFuture包装的异常
+     */
+    private Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
         }
+        return throwable;
     }
 
     /**
@@ -263,4 +441,85 @@ public class StreamChatService {
     }
 
     // 已移除escapeJson方法，改用JsonUtils.escapeJsonString()进行JSON字符串转义
+
+    /**
+     * 单次流式生成的上下文
+     * 在各异步阶段之间传递，并累积模型输出
+     */
+    private static final class StreamContext {
+        private final ModelProvider provider;
+        private final PromptType promptType;
+        private final Conversation conversation;
+        private final Prompt prompt;
+        private final SseEventEncoder encoder;
+        private final GenerationStream stream;
+        private final StringBuilder fullResponse = new StringBuilder();
+        private volatile ChunkCoalescer coalescer;
+        private volatile boolean cancelled;
+
+        StreamContext(ModelProvider provider, PromptType promptType, Conversation conversation, Prompt prompt,
+                SseEventEncoder encoder, GenerationStream stream) {
+            this.provider = provider;
+            this.promptType = promptType;
+            this.conversation = conversation;
+            this.prompt = prompt;
+            this.encoder = encoder;
+            this.stream = stream;
+        }
+
+        /**
+         * 追加数据块
+         */
+        synchronized void append(String chunk) {
+            fullResponse.append(chunk);
+        }
+
+        synchronized String getResponse() {
+            return fullResponse.toString().trim();
+        }
+
+        synchronized int getResponseLength() {
+            return fullResponse.length();
+        }
+
+        ModelProvider getProvider() {
+            return provider;
+        }
+
+        PromptType getPromptType() {
+            return promptType;
+        }
+
+        Conversation getConversation() {
+            return conversation;
+        }
+
+        Prompt getPrompt() {
+            return prompt;
+        }
+
+        SseEventEncoder getEncoder() {
+            return encoder;
+        }
+
+        GenerationStream getStream() {
+            return stream;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        void markCancelled() {
+            this.cancelled = true;
+        }
+
+        ChunkCoalescer getCoalescer() {
+            return coalescer;
+        }
+
+        void setCoalescer(ChunkCoalescer coalescer) {
+            this.coalescer = coalescer;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.dreamer.chat.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dreamer.chat.entity.PromptTemplate;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 系统提示词缓存
+ *
+ * <p>
+ * 系统提示词中的 {@code {{current_time}}} 等变量每轮渲染结果都不同，会使提供商的前缀缓存
+ * （DeepSeek上下文硬盘缓存、通义千问前缀缓存）在第一条消息处就失配。
+ * 结构化消息模式下缓存渲染结果，模板和变量不变时当天内逐字节复用同一个系统提示词；
+ * 渲染结果只取决于模板和变量，因此按（模板ID、模板更新时间、日期、变量）缓存，使用同一模板的对话共享一份。
+ * </p>
+ *
+ * <p>
+ * 缓存的系统提示词中 {@code {{current_time}}} 与 {@code {{current_date}}} 都渲染为当天日期；
+ * 引用了 {@code {{current_time}}} 的模板，精确到秒的本轮时间由 {@link #currentTimePrefix} 生成，
+ * 加在当前提问的用户消息开头，位于稳定前缀之后。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Service
+public class SystemPromptCache {
+
+    private static final DateTimeFormatter CURRENT_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Cache<Key, String> prompts;
+
+    @Autowired
+    public SystemPromptCache(MeterRegistry meterRegistry,
+            @Value("${app.chat.context.cache.max-conversations:10000}") long maxEntries,
+            @Value("${app.chat.context.cache.expire-minutes:30}") long expireMinutes) {
+        this.prompts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(Duration.ofMinutes(expireMinutes))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, prompts, "chat.prompt.system");
+    }
+
+    /**
+     * 获取系统提示词
+     *
+     * @param template  模板（未持久化、没有ID时每次渲染）
+     * @param variables 变量
+     * @return 渲染后的系统提示词，内置时间变量渲染为当天日期
+     */
+    public String get(PromptTemplate template, Map<String, String> variables) {
+        LocalDate today = LocalDate.now();
+        if (template.getId() == null) {
+            return render(template, variables, today);
+        }
+        Key key = new Key(template.getId(), template.getUpdatedTime(), today,
+                variables != null ? new HashMap<>(variables) : Map.of());
+        return prompts.get(key, k -> render(template, variables, today));
+    }
+
+    /**
+     * 生成加在当前提问开头的本轮时间
+     *
+     * @param template 模板
+     * @param now      当前时间
+     * @return 时间前缀；系统提示词未引用 {@code {{current_time}}} 时返回null
+     */
+    public String currentTimePrefix(PromptTemplate template, LocalDateTime now) {
+        if (!template.compiledSystemPrompt().referencesCurrentTime()) {
+            return null;
+        }
+        return "[当前时间：" + CURRENT_TIME_FORMATTER.format(now) + "]\n";
+    }
+
+    private static String render(PromptTemplate template, Map<String, String> variables, LocalDate today) {
+        StringBuilder builder = new StringBuilder(template.compiledSystemPrompt().literalLength() + 64);
+        template.compiledSystemPrompt().renderDaily(builder, variables, today);
+        return builder.toString().trim();
+    }
+
+    private record Key(Long templateId, LocalDateTime templateVersion, LocalDate date,
+            Map<String, String> variables) {
+    }
+}
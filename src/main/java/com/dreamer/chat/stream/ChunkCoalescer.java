@@ -0,0 +1,216 @@
+package com.dreamer.chat.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * 数据块合并器
+ * 
+ * <p>
+ * 将模型逐Token输出的数据块缓冲起来，达到指定字节数或等待超过指定毫秒数后
+ * 才合并为一个帧发出，减少SSE事件数量、系统调用和客户端重绘次数。
+ * 每个流式生成使用一个独立实例，线程安全。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class ChunkCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkCoalescer.class);
+
+    /**
+     * 帧输出目标
+     */
+    @FunctionalInterface
+    public interface FrameSink {
+
+        /**
+         * 发送一个合并后的帧
+         * 
+         * @param text       帧内容
+         * @param frameIndex 帧序号（从1开始）
+         * @throws IOException 发送失败时抛出
+         */
+        void send(String text, int frameIndex) throws IOException;
+    }
+
+    private final int maxBytes;
+    private final long maxDelayMillis;
+    private final Scheduler scheduler;
+    private final FrameSink sink;
+
+    private final StringBuilder buffer = new StringBuilder();
+    private int bufferedBytes;
+    private int frameCount;
+    private int chunkCount;
+    private long firstFrameNanos;
+    private long lastFrameNanos;
+    private Disposable scheduledFlush;
+    private RuntimeException pendingFailure;
+    private boolean closed;
+
+    /**
+     * 构造函数
+     * 
+     * @param maxBytes       缓冲字节数上限，小于等于0表示不合并
+     * @param maxDelayMillis 最长缓冲时间（毫秒）
+     * @param scheduler      定时刷新使用的调度器
+     * @param sink           帧输出目标
+     */
+    public ChunkCoalescer(int maxBytes, long maxDelayMillis, Scheduler scheduler, FrameSink sink) {
+        this.maxBytes = maxBytes;
+        this.maxDelayMillis = maxDelayMillis;
+        this.scheduler = scheduler;
+        this.sink = sink;
+    }
+
+    /**
+     * 添加一个数据块
+     * 
+     * @param chunk 数据块
+     * @throws RuntimeException 帧发送失败时抛出（包括之前定时刷新失败的情况）
+     */
+    public synchronized void add(String chunk) {
+        rethrowPendingFailure();
+        if (closed || chunk == null || chunk.isEmpty()) {
+            return;
+        }
+
+        chunkCount++;
+        buffer.append(chunk);
+        bufferedBytes += utf8Length(chunk);
+
+        if (maxBytes <= 0 || bufferedBytes >= maxBytes) {
+            flushBuffer();
+        } else if (scheduledFlush == null && maxDelayMillis > 0) {
+            scheduledFlush = scheduler.schedule(this::flushOnTimer, maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 立即发出所有缓冲内容，并停止后续定时刷新
+     * 
+     * @throws RuntimeException 帧发送失败时抛出
+     */
+    public synchronized void flush() {
+        rethrowPendingFailure();
+        flushBuffer();
+        closed = true;
+    }
+
+    /**
+     * 丢弃缓冲内容并停止定时刷新（用于出错或取消的场景）
+     */
+    public synchronized void close() {
+        cancelScheduledFlush();
+        buffer.setLength(0);
+        bufferedBytes = 0;
+        closed = true;
+    }
+
+    /**
+     * 已发出的帧数
+     */
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * 已接收的原始数据块数
+     */
+    public synchronized int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * 有效帧率（帧/秒），从第一帧到最后一帧计算
+     */
+    public synchronized double getFramesPerSecond() {
+        if (frameCount < 2) {
+            return frameCount;
+        }
+        double seconds = (lastFrameNanos - firstFrameNanos) / 1_000_000_000.0;
+        return seconds > 0 ? (frameCount - 1) / seconds : frameCount;
+    }
+
+    private synchronized void flushOnTimer() {
+        scheduledFlush = null;
+        if (closed) {
+            return;
+        }
+        try {
+            flushBuffer();
+        } catch (RuntimeException e) {
+            // 定时线程无法把异常抛回上游，留到下一次add/flush时抛出
+            log.debug("定时刷新数据块失败: {}", e.getMessage());
+            pendingFailure = e;
+            closed = true;
+        }
+    }
+
+    private void flushBuffer() {
+        cancelScheduledFlush();
+        if (buffer.length() == 0) {
+            return;
+        }
+
+        String text = buffer.toString();
+        buffer.setLength(0);
+        bufferedBytes = 0;
+
+        long now = System.nanoTime();
+        if (frameCount == 0) {
+            firstFrameNanos = now;
+        }
+        lastFrameNanos = now;
+
+        try {
+            sink.send(text, ++frameCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.dispose();
+            scheduledFlush = null;
+        }
+    }
+
+    private void rethrowPendingFailure() {
+        if (pendingFailure != null) {
+            throw pendingFailure;
+        }
+    }
+
+    /**
+     * 计算字符串的UTF-8字节数，避免为计数而编码
+     */
+    static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // 代理对整体占4个字节
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,163 @@
+package com.dreamer.chat.stream;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dreamer.chat.enums.SlowConsumerPolicy;
+import com.dreamer.chat.util.JsonUtils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 流式生成注册表
+ * 
+ * <p>
+ * 按流ID保存进行中和最近完成的流式生成，供断线重连时查找；同时按对话ID索引每个对话最近一次生成，
+ * 供同一对话在其他标签页或设备上的观察者直接订阅，无需再次调用模型。
+ * 生成结束后保留一段时间（默认5分钟）再移除，重放缓冲区随之释放。
+ * </p>
+ * 
+ * <p>
+ * 条目正常通过 {@link #complete} 结束。为防止完成阶段未执行（如上游既不结束也不报错）导致条目和重放缓冲区
+ * 永久驻留，每个生成在创建时登记一个过期任务：超过最大生成时长加宽限期仍未结束的，
+ * 触发上游取消信号、发送 GENERATION_EXPIRED 错误事件并按正常流程结束。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Component
+public class GenerationRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationRegistry.class);
+
+    private final Map<String, GenerationStream> streams = new ConcurrentHashMap<>();
+    private final Map<Long, GenerationStream> streamsByConversation = new ConcurrentHashMap<>();
+
+    @Value("${app.chat.stream.replay.capacity:1024}")
+    private int replayCapacity;
+
+    @Value("${app.chat.stream.replay.retention-seconds:300}")
+    private long retentionSeconds;
+
+    @Value("${app.chat.stream.resume.grace-seconds:30}")
+    private long graceSeconds;
+
+    @Value("${app.chat.stream.max-generation-seconds:600}")
+    private long maxGenerationSeconds;
+
+    @Value("${app.chat.stream.subscriber.queue-capacity:256}")
+    private int subscriberQueueCapacity;
+
+    @Value("${app.chat.stream.subscriber.slow-consumer-policy:coalesce}")
+    private String slowConsumerPolicy;
+
+    @Value("${app.chat.stream.subscriber.max-stall-ms:30000}")
+    private long maxStallMillis;
+
+    @Autowired
+    @Qualifier("streamChatExecutor")
+    private Executor streamChatExecutor;
+
+    @Autowired
+    private StreamMetrics streamMetrics;
+
+    private volatile SseSubscriber.Options subscriberOptions;
+
+    @Autowired
+    public GenerationRegistry(MeterRegistry meterRegistry) {
+        Gauge.builder("chat.stream.registry.size", streams, Map::size)
+                .description("注册表中的流式生成数（含保留期内已完成的）")
+                .register(meterRegistry);
+        Gauge.builder("chat.stream.subscribers", streams,
+                map -> map.values().stream().mapToInt(GenerationStream::getSubscriberCount).sum())
+                .description("当前连接到流式生成的SSE订阅者数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 创建并注册一个新的流式生成
+     */
+    public GenerationStream create() {
+        String streamId = UUID.randomUUID().toString();
+        GenerationStream stream = new GenerationStream(streamId, replayCapacity,
+                TimeUnit.SECONDS.toMillis(graceSeconds), subscriberOptions());
+        streams.put(streamId, stream);
+        Schedulers.parallel().schedule(() -> expire(stream), maxGenerationSeconds + graceSeconds, TimeUnit.SECONDS);
+        return stream;
+    }
+
+    /**
+     * 将流式生成关联到对话，后续对该对话的观察订阅将接入此生成
+     */
+    public void bindConversation(GenerationStream stream, Long conversationId) {
+        stream.setConversationId(conversationId);
+        streamsByConversation.put(conversationId, stream);
+    }
+
+    /**
+     * 查找对话最近一次（进行中或保留期内已完成的）流式生成
+     */
+    public Optional<GenerationStream> findByConversation(Long conversationId) {
+        return Optional.ofNullable(streamsByConversation.get(conversationId));
+    }
+
+    /**
+     * 按流ID查找
+     */
+    public Optional<GenerationStream> find(String streamId) {
+        return Optional.ofNullable(streams.get(streamId));
+    }
+
+    /**
+     * 结束流式生成，并在保留期后从注册表移除
+     */
+    public void complete(GenerationStream stream) {
+        stream.complete();
+        Schedulers.parallel().schedule(() -> evict(stream), retentionSeconds, TimeUnit.SECONDS);
+    }
+
+    private SseSubscriber.Options subscriberOptions() {
+        if (subscriberOptions == null) {
+            subscriberOptions = new SseSubscriber.Options(subscriberQueueCapacity,
+                    SlowConsumerPolicy.fromCode(slowConsumerPolicy), maxStallMillis, streamChatExecutor, streamMetrics);
+        }
+        return subscriberOptions;
+    }
+
+    /**
+     * 超过最大生成时长仍未结束的生成：取消上游并结束，之后与正常结束一样在保留期后移除
+     */
+    void expire(GenerationStream stream) {
+        if (stream.isCompleted()) {
+            return;
+        }
+        log.warn("流式生成超过最大时长仍未结束，强制结束: streamId={}, conversationId={}",
+                stream.getStreamId(), stream.getConversationId());
+        stream.getCancelSignal().fire("expired");
+        stream.publish("error", JsonUtils.createSseEventData(
+                "error", "生成超时",
+                "code", "GENERATION_EXPIRED"));
+        complete(stream);
+    }
+
+    private void evict(GenerationStream stream) {
+        streams.remove(stream.getStreamId(), stream);
+        if (stream.getConversationId() != null) {
+            streamsByConversation.remove(stream.getConversationId(), stream);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.dreamer.chat.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 一次进行中的流式生成
+ * 
+ * <p>
+ * 生成过程与具体的SSE连接解耦：所有事件先分配单调递增的事件ID并写入重放缓冲区，
+ * 再放入当前各订阅者的有界发送队列（见 {@link SseSubscriber}），不在生成线程中直接写socket。客户端断线后可通过 Last-Event-ID 重新连接，
+ * 先重放错过的事件，再接入实时输出。同一生成可以有任意多个订阅者（如同一用户的多个标签页），
+ * 上游模型只调用一次。所有订阅者断开且超过宽限期后，触发取消信号以停止上游生成。
+ * </p>
+ * 
+ * <p>
+ * 重放缓冲区覆盖掉的正文帧会累积为快照，非正文帧（start、conversation等）则单独保留，
+ * 因此任何订阅者都可以从头重放：缺失的正文以一个 ai_snapshot 事件补齐（客户端以其内容替换已有正文），
+ * 之后再接续缓冲区中的帧。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class GenerationStream {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationStream.class);
+
+    private final String streamId;
+    private final ReplayBuffer replayBuffer;
+    private final long graceMillis;
+    private final SseSubscriber.Options subscriberOptions;
+    private final SseDisconnectSignal cancelSignal = SseDisconnectSignal.create();
+    private final List<SseSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final List<StreamFrame> pinnedFrames = new ArrayList<>();
+    private final StringBuilder evictedContent = new StringBuilder();
+    private final SseEventEncoder encoder = new SseEventEncoder();
+
+    private volatile Long conversationId;
+    private long lastEventId;
+    private boolean completed;
+    private Disposable graceTimer;
+
+    /**
+     * 构造函数
+     * 
+     * @param streamId          流ID
+     * @param replayCapacity    重放缓冲区容量（帧数）
+     * @param graceMillis       无订阅者时取消上游生成前的等待时间
+     * @param subscriberOptions 订阅者发送队列配置
+     */
+    public GenerationStream(String streamId, int replayCapacity, long graceMillis,
+            SseSubscriber.Options subscriberOptions) {
+        this.streamId = streamId;
+        this.replayBuffer = new ReplayBuffer(replayCapacity);
+        this.graceMillis = graceMillis;
+        this.subscriberOptions = subscriberOptions;
+    }
+
+    /**
+     * 发布一个事件：分配事件ID、写入重放缓冲区并放入所有订阅者的发送队列
+     * 
+     * @param event 事件名称
+     * @param data  事件数据
+     */
+    public void publish(String event, String data) {
+        publishContent(event, data, null, 0);
+    }
+
+    /**
+     * 发布一个携带回复正文增量的事件
+     * 
+     * @param event   事件名称
+     * @param data    事件数据
+     * @param content 正文增量，用于在帧被覆盖后生成快照
+     * @param index   正文帧序号，订阅者合并积压帧时沿用最后一帧的序号
+     */
+    public synchronized void publishContent(String event, String data, String content, int index) {
+        if (completed) {
+            return;
+        }
+
+        StreamFrame frame = new StreamFrame(++lastEventId, event, data, content, index);
+        StreamFrame evicted = replayBuffer.add(frame);
+        if (evicted != null) {
+            if (evicted.isContent()) {
+                evictedContent.append(evicted.getContent());
+            } else {
+                pinnedFrames.add(evicted);
+            }
+        }
+
+        for (SseSubscriber subscriber : subscribers) {
+            if (!subscriber.offer(frame)) {
+                // 订阅者已断开或因接收过慢被断开
+                subscribers.remove(subscriber);
+            }
+        }
+        if (subscribers.isEmpty()) {
+            scheduleGraceCancel();
+        }
+    }
+
+    /**
+     * 接入一个订阅者
+     * 
+     * <p>
+     * 先重放事件ID大于 lastEventId 的事件，再加入实时订阅；生成已结束时重放后直接完成连接。
+     * 需要的正文帧已被环形缓冲区覆盖时，以 ai_snapshot 事件代替。
+     * </p>
+     * 
+     * @param emitter     SSE发射器
+     * @param lastEventId 客户端最后收到的事件ID，从头订阅传0
+     * @return 是否接入成功
+     */
+    public synchronized boolean attach(SseEmitter emitter, long lastEventId) {
+        SseSubscriber subscriber = new SseSubscriber(this, emitter, subscriberOptions);
+        Runnable onClosed = () -> {
+            subscriber.close();
+            detach(subscriber);
+        };
+        emitter.onCompletion(onClosed);
+        emitter.onTimeout(onClosed);
+        emitter.onError(throwable -> onClosed.run());
+
+        List<StreamFrame> replay = new ArrayList<>();
+        long replayFrom = lastEventId;
+        if (!replayBuffer.canReplayFrom(lastEventId)) {
+            long upToEventId = replayBuffer.oldestId() - 1;
+            log.debug("重放窗口不足，使用快照补齐: streamId={}, lastEventId={}, upToEventId={}",
+                    streamId, lastEventId, upToEventId);
+
+            for (StreamFrame frame : pinnedFrames) {
+                if (frame.getId() > lastEventId) {
+                    replay.add(frame);
+                }
+            }
+            replay.add(snapshotFrame(upToEventId));
+            replayFrom = upToEventId;
+        }
+        replay.addAll(replayBuffer.framesAfter(replayFrom));
+        subscriber.offerReplay(replay);
+
+        if (completed) {
+            subscriber.complete();
+            return true;
+        }
+
+        subscribers.add(subscriber);
+        cancelGraceTimer();
+        return true;
+    }
+
+    /**
+     * 生成截至指定事件ID的正文快照帧
+     * 
+     * <p>
+     * 所需的正文帧已被重放缓冲区覆盖时，快照会扩展到缓冲区最旧帧之前，返回帧的ID即实际截止的事件ID。
+     * </p>
+     * 
+     * @param upToEventId 快照截止的事件ID
+     * @return ai_snapshot事件帧
+     */
+    public synchronized StreamFrame snapshotFrame(long upToEventId) {
+        long effectiveUpTo = Math.max(upToEventId, replayBuffer.oldestId() - 1);
+        StringBuilder content = new StringBuilder(evictedContent);
+        for (StreamFrame frame : replayBuffer.framesAfter(0L)) {
+            if (frame.getId() > effectiveUpTo) {
+                break;
+            }
+            if (frame.isContent()) {
+                content.append(frame.getContent());
+            }
+        }
+        return new StreamFrame(effectiveUpTo, "ai_snapshot", encoder.snapshot(content, effectiveUpTo));
+    }
+
+    /**
+     * 结束生成：各订阅者发送完队列中的事件后完成连接，之后的发布将被忽略
+     */
+    public synchronized void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        cancelGraceTimer();
+
+        for (SseSubscriber subscriber : subscribers) {
+            subscriber.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * 订阅者断开
+     */
+    synchronized void detach(SseSubscriber subscriber) {
+        if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+            scheduleGraceCancel();
+        }
+    }
+
+    public String getStreamId() {
+        return streamId;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    /**
+     * 上游取消信号：所有订阅者断开超过宽限期后触发
+     */
+    public SseDisconnectSignal getCancelSignal() {
+        return cancelSignal;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void scheduleGraceCancel() {
+        if (completed || graceTimer != null) {
+            return;
+        }
+        graceTimer = Schedulers.parallel().schedule(this::cancelIfAbandoned, graceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelIfAbandoned() {
+        boolean abandoned;
+        synchronized (this) {
+            graceTimer = null;
+            abandoned = !completed && subscribers.isEmpty();
+        }
+        // 在锁外触发取消，避免与合并器的锁形成顺序反转
+        if (abandoned) {
+            log.info("所有订阅者已断开超过{}ms，取消生成: streamId={}", graceMillis, streamId);
+            cancelSignal.fire("abandoned");
+        }
+    }
+
+    private void cancelGraceTimer() {
+        if (graceTimer != null) {
+            graceTimer.dispose();
+            graceTimer = null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.dreamer.chat.stream;
+
+import java.io.IOException;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 由心跳时间轮管理的SSE发射器
+ * 
+ * <p>
+ * 不设置容器级的固定超时，改由 {@link SseHeartbeatWheel} 按空闲时间判断超时：
+ * 每次发送业务事件都会刷新活动时间，空闲期间由时间轮发送注释心跳，防止代理在长时间
+ * 无数据时（如模型思考阶段）断开连接。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class ManagedSseEmitter extends SseEmitter {
+
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile long lastWriteNanos = lastActivityNanos;
+    private volatile boolean closed;
+
+    public ManagedSseEmitter() {
+        // 0表示不设置容器超时，空闲超时由心跳时间轮负责
+        super(0L);
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        super.send(builder);
+        long now = System.nanoTime();
+        lastActivityNanos = now;
+        lastWriteNanos = now;
+    }
+
+    /**
+     * 发送注释心跳，不刷新活动时间
+     */
+    void sendHeartbeat() throws IOException {
+        super.send(SseEmitter.event().comment("heartbeat"));
+        lastWriteNanos = System.nanoTime();
+    }
+
+    @Override
+    public void complete() {
+        closed = true;
+        super.complete();
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+        closed = true;
+        super.completeWithError(ex);
+    }
+
+    long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+}
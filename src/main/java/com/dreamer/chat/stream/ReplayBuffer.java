@@ -0,0 +1,93 @@
+package com.dreamer.chat.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 事件重放环形缓冲区
+ * 
+ * <p>
+ * 按事件ID顺序保存最近的若干帧，超出容量时覆盖最旧的帧。
+ * 非线程安全，由所属的 {@link GenerationStream} 加锁访问。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class ReplayBuffer {
+
+    private final StreamFrame[] frames;
+    private int head;
+    private int size;
+
+    /**
+     * 构造函数
+     * 
+     * @param capacity 最多保存的帧数
+     */
+    public ReplayBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("重放缓冲区容量必须大于0");
+        }
+        this.frames = new StreamFrame[capacity];
+    }
+
+    /**
+     * 追加一帧，缓冲区已满时覆盖最旧的帧
+     * 
+     * @return 被覆盖的帧，未覆盖时返回null
+     */
+    public StreamFrame add(StreamFrame frame) {
+        int tail = (head + size) % frames.length;
+        StreamFrame evicted = null;
+        if (size < frames.length) {
+            size++;
+        } else {
+            evicted = frames[head];
+            head = (head + 1) % frames.length;
+        }
+        frames[tail] = frame;
+        return evicted;
+    }
+
+    /**
+     * 返回事件ID大于指定值的所有帧（按顺序）
+     * 
+     * @param lastEventId 客户端最后收到的事件ID
+     * @return 需要重放的帧
+     */
+    public List<StreamFrame> framesAfter(long lastEventId) {
+        List<StreamFrame> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            StreamFrame frame = frames[(head + i) % frames.length];
+            if (frame.getId() > lastEventId) {
+                result.add(frame);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 判断从指定事件ID之后是否可以无缺口地重放
+     * 
+     * @param lastEventId 客户端最后收到的事件ID
+     * @return 缺少的帧已被覆盖时返回false
+     */
+    public boolean canReplayFrom(long lastEventId) {
+        if (size == 0) {
+            return true;
+        }
+        return frames[head].getId() <= lastEventId + 1;
+    }
+
+    /**
+     * 缓冲区中最旧帧的事件ID，缓冲区为空时返回0
+     */
+    public long oldestId() {
+        return size == 0 ? 0L : frames[head].getId();
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,105 @@
+package com.dreamer.chat.stream;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * SSE连接断开信号
+ * 
+ * <p>
+ * 统一接管SseEmitter的完成、超时和错误回调（SseEmitter每类回调只能注册一个），
+ * 把连接终止转换为一个只触发一次的Mono信号。流式生成通过
+ * {@code takeUntilOther(signal.asMono())} 订阅该信号，客户端断开后即取消上游模型调用。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public final class SseDisconnectSignal {
+
+    private static final Logger log = LoggerFactory.getLogger(SseDisconnectSignal.class);
+
+    private final Sinks.One<String> sink = Sinks.one();
+    private final AtomicReference<String> reason = new AtomicReference<>();
+
+    private SseDisconnectSignal() {
+    }
+
+    /**
+     * 创建一个不绑定SseEmitter的信号，由调用方决定何时触发
+     * 
+     * @return 断开信号
+     */
+    public static SseDisconnectSignal create() {
+        return new SseDisconnectSignal();
+    }
+
+    /**
+     * 为SseEmitter注册生命周期回调并返回断开信号
+     * 
+     * @param emitter SSE发射器
+     * @param label   日志标识（如对话ID）
+     * @return 断开信号
+     */
+    public static SseDisconnectSignal attach(SseEmitter emitter, Object label) {
+        SseDisconnectSignal signal = new SseDisconnectSignal();
+
+        emitter.onCompletion(() -> {
+            log.debug("SSE连接完成: {}", label);
+            signal.fire("completed");
+        });
+        emitter.onTimeout(() -> {
+            log.warn("SSE连接超时: {}", label);
+            signal.fire("timeout");
+        });
+        emitter.onError(throwable -> {
+            log.warn("SSE连接发生错误: {}, error={}", label, throwable.getMessage());
+            signal.fire("error");
+        });
+
+        return signal;
+    }
+
+    /**
+     * 触发断开信号，仅第一次调用生效
+     * 
+     * <p>
+     * 先记录原因再发出信号：{@code takeUntilOther} 在发出信号的线程上同步取消上游并完成下游，
+     * 取消和完成回调中读取的 {@link #isDisconnected()}、{@link #getReason()} 必须已经生效。
+     * </p>
+     * 
+     * @param reason 断开原因
+     */
+    public void fire(String reason) {
+        if (this.reason.compareAndSet(null, reason)) {
+            sink.tryEmitValue(reason);
+        }
+    }
+
+    /**
+     * 连接是否已断开
+     */
+    public boolean isDisconnected() {
+        return reason.get() != null;
+    }
+
+    /**
+     * 断开原因，未断开时为null
+     */
+    public String getReason() {
+        return reason.get();
+    }
+
+    /**
+     * 断开时发出原因的Mono
+     */
+    public Mono<String> asMono() {
+        return sink.asMono();
+    }
+}
@@ -0,0 +1,140 @@
+package com.dreamer.chat.stream;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/**
+ * 流式事件编码器
+ * 
+ * <p>
+ * 针对流式聊天中固定结构的事件（start、ai_start、ai_chunk、ai_snapshot、complete），
+ * 直接把转义后的JSON写入可复用的缓冲区，不构建中间Map、不装箱、不经过ObjectMapper。
+ * 每个流式生成使用一个独立实例；输出与 {@link com.dreamer.chat.util.JsonUtils#createSseEventData}
+ * 语义一致（字段顺序固定）。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public final class SseEventEncoder {
+
+    private static final JsonStringEncoder ESCAPER = JsonStringEncoder.getInstance();
+
+    private final StringBuilder buffer = new StringBuilder(256);
+    private boolean firstField;
+
+    /**
+     * 编码start事件
+     * 
+     * @param status   状态
+     * @param message  提示信息
+     * @param streamId 流ID，断线重连时使用
+     */
+    public synchronized String start(String status, String message, String streamId) {
+        begin();
+        stringField("status", status);
+        stringField("message", message);
+        stringField("streamId", streamId);
+        return end();
+    }
+
+    /**
+     * 编码ai_start事件
+     */
+    public synchronized String aiStart(String provider, String model, String promptType) {
+        begin();
+        stringField("provider", provider);
+        stringField("model", model);
+        stringField("promptType", promptType);
+        return end();
+    }
+
+    /**
+     * 编码ai_chunk事件
+     * 
+     * @param chunk 数据块内容
+     * @param index 帧序号
+     */
+    public synchronized String chunk(CharSequence chunk, int index) {
+        begin();
+        stringField("chunk", chunk);
+        numberField("index", index);
+        return end();
+    }
+
+    /**
+     * 编码complete事件
+     */
+    public synchronized String complete(Long messageId, long responseTime, int frames, double framesPerSecond) {
+        begin();
+        if (messageId == null) {
+            nullField("messageId");
+        } else {
+            numberField("messageId", messageId);
+        }
+        numberField("responseTime", responseTime);
+        numberField("frames", frames);
+        numberField("framesPerSecond", framesPerSecond);
+        stringField("status", "success");
+        return end();
+    }
+
+    /**
+     * 编码ai_snapshot事件：重放窗口之前已生成的完整正文
+     * 
+     * @param content     截至 upToEventId 的回复正文
+     * @param upToEventId 快照包含的最后一个事件ID
+     */
+    public synchronized String snapshot(CharSequence content, long upToEventId) {
+        begin();
+        stringField("content", content);
+        numberField("upToEventId", upToEventId);
+        return end();
+    }
+
+    private void begin() {
+        buffer.setLength(0);
+        buffer.append('{');
+        firstField = true;
+    }
+
+    private String end() {
+        buffer.append('}');
+        return buffer.toString();
+    }
+
+    private void name(String name) {
+        if (!firstField) {
+            buffer.append(',');
+        }
+        firstField = false;
+        // 字段名均为代码中的常量，无需转义
+        buffer.append('"').append(name).append("\":");
+    }
+
+    private void stringField(String name, CharSequence value) {
+        if (value == null) {
+            nullField(name);
+            return;
+        }
+        name(name);
+        buffer.append('"');
+        ESCAPER.quoteAsString(value, buffer);
+        buffer.append('"');
+    }
+
+    private void numberField(String name, long value) {
+        name(name);
+        buffer.append(value);
+    }
+
+    private void numberField(String name, double value) {
+        name(name);
+        // JSON不支持NaN和Infinity
+        buffer.append(Double.isFinite(value) ? value : 0.0);
+    }
+
+    private void nullField(String name) {
+        name(name);
+        buffer.append("null");
+    }
+}
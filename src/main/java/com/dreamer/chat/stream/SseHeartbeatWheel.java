@@ -0,0 +1,190 @@
+package com.dreamer.chat.stream;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * SSE心跳时间轮
+ * 
+ * <p>
+ * 所有打开的 {@link ManagedSseEmitter} 共用一个哈希时间轮，而不是每个流一个定时任务：
+ * 时间轮的一圈等于心跳间隔，注册时按当前指针放入一个槽位（O(1)），单个时钟线程每个tick只处理一个槽位，
+ * 因此每个连接每隔一个心跳间隔被检查一次。检查时：
+ * </p>
+ * <ul>
+ * <li>已关闭的连接从槽位移除</li>
+ * <li>空闲（未发送业务事件）超过空闲超时的连接发送超时事件并结束</li>
+ * <li>一个心跳间隔内没有写出任何字节的连接发送注释心跳</li>
+ * </ul>
+ * <p>
+ * 实际的写操作派发到流式聊天执行器，慢速socket不会拖住时钟线程。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Component
+public class SseHeartbeatWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(SseHeartbeatWheel.class);
+
+    private static final String IDLE_TIMEOUT_EVENT =
+            "{\"error\":\"连接空闲超时\",\"code\":\"IDLE_TIMEOUT\"}";
+
+    @Value("${app.chat.stream.heartbeat.interval-seconds:15}")
+    private long heartbeatIntervalSeconds;
+
+    @Value("${app.chat.stream.heartbeat.idle-timeout-seconds:120}")
+    private long idleTimeoutSeconds;
+
+    @Value("${app.chat.stream.heartbeat.tick-millis:1000}")
+    private long tickMillis;
+
+    @Autowired
+    @Qualifier("streamChatExecutor")
+    private Executor streamChatExecutor;
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger registered = new AtomicInteger();
+    private final AtomicInteger cursor = new AtomicInteger();
+    private Set<ManagedSseEmitter>[] wheel;
+    private ScheduledExecutorService ticker;
+    private Counter heartbeatCounter;
+    private Counter idleTimeoutCounter;
+
+    @Autowired
+    public SseHeartbeatWheel(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void start() {
+        int slots = (int) Math.max(1, TimeUnit.SECONDS.toMillis(heartbeatIntervalSeconds) / tickMillis);
+        wheel = new Set[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+
+        Gauge.builder("chat.stream.heartbeat.registered", registered, AtomicInteger::get)
+                .description("心跳时间轮中登记的SSE连接数")
+                .register(meterRegistry);
+        heartbeatCounter = Counter.builder("chat.stream.heartbeat.sent")
+                .description("发送的SSE心跳数")
+                .register(meterRegistry);
+        idleTimeoutCounter = Counter.builder("chat.stream.heartbeat.idle.timeout")
+                .description("因空闲超时被关闭的SSE连接数")
+                .register(meterRegistry);
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+
+        log.info("SSE心跳时间轮已启动: slots={}, tick={}ms, heartbeat={}s, idleTimeout={}s",
+                slots, tickMillis, heartbeatIntervalSeconds, idleTimeoutSeconds);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * 登记一个SSE连接，放入当前指针之前的槽位，一个心跳间隔后首次检查
+     * 
+     * @param emitter SSE发射器
+     */
+    public void register(ManagedSseEmitter emitter) {
+        int slot = Math.floorMod(cursor.get() - 1, wheel.length);
+        wheel[slot].add(emitter);
+        registered.incrementAndGet();
+    }
+
+    /**
+     * 处理当前槽位并推进指针
+     */
+    private void tick() {
+        try {
+            int slot = cursor.getAndUpdate(current -> (current + 1) % wheel.length);
+            long now = System.nanoTime();
+            long heartbeatNanos = TimeUnit.SECONDS.toNanos(heartbeatIntervalSeconds);
+            long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+
+            Set<ManagedSseEmitter> bucket = wheel[slot];
+            for (ManagedSseEmitter emitter : bucket) {
+                if (emitter.isClosed()) {
+                    remove(bucket, emitter);
+                } else if (idleTimeoutNanos > 0 && now - emitter.getLastActivityNanos() >= idleTimeoutNanos) {
+                    remove(bucket, emitter);
+                    dispatch(() -> expire(emitter));
+                } else if (now - emitter.getLastWriteNanos() >= heartbeatNanos) {
+                    dispatch(() -> heartbeat(emitter));
+                }
+            }
+        } catch (Exception e) {
+            // 不能让异常终止时钟线程
+            log.error("SSE心跳时间轮处理失败", e);
+        }
+    }
+
+    private void heartbeat(ManagedSseEmitter emitter) {
+        try {
+            emitter.sendHeartbeat();
+            heartbeatCounter.increment();
+        } catch (IOException | IllegalStateException e) {
+            // 心跳写失败说明客户端已断开，结束连接以触发订阅者的清理回调
+            log.debug("SSE心跳发送失败，关闭连接: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void expire(ManagedSseEmitter emitter) {
+        idleTimeoutCounter.increment();
+        try {
+            emitter.send(ManagedSseEmitter.event().name("error").data(IDLE_TIMEOUT_EVENT));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            streamChatExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 执行器已满时跳过本轮，下一圈再处理
+            log.debug("执行器已满，跳过本轮SSE心跳");
+        }
+    }
+
+    private void remove(Set<ManagedSseEmitter> bucket, ManagedSseEmitter emitter) {
+        if (bucket.remove(emitter)) {
+            registered.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.dreamer.chat.stream;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.dreamer.chat.enums.SlowConsumerPolicy;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * SSE订阅者
+ * 
+ * <p>
+ * 在流式生成与单个SseEmitter之间加入有界发送队列：生成流只负责入队，
+ * 实际的 {@code emitter.send} 由执行器中的排空任务完成，一个慢速客户端不会阻塞模型输出的读取，
+ * 也不会拖慢同一生成的其他订阅者。队列积压满时按 {@link SlowConsumerPolicy} 处理，
+ * 持续积压超过上限时间则一律断开。执行器已满时帧保留在队列中稍后重试，任何情况下都不在发布线程中发送。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class SseSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(SseSubscriber.class);
+
+    private static final String SNAPSHOT_EVENT = "ai_snapshot";
+    private static final long DRAIN_RETRY_MILLIS = 100;
+    private static final String SLOW_CONSUMER_ERROR =
+            "{\"error\":\"客户端接收过慢，连接已断开，可使用Last-Event-ID续传\",\"code\":\"SLOW_CONSUMER\"}";
+
+    /**
+     * 订阅者配置
+     */
+    public static final class Options {
+        private final int queueCapacity;
+        private final SlowConsumerPolicy policy;
+        private final long maxStallMillis;
+        private final Executor executor;
+        private final StreamMetrics metrics;
+
+        public Options(int queueCapacity, SlowConsumerPolicy policy, long maxStallMillis, Executor executor,
+                StreamMetrics metrics) {
+            this.queueCapacity = queueCapacity;
+            this.policy = policy;
+            this.maxStallMillis = maxStallMillis;
+            this.executor = executor;
+            this.metrics = metrics;
+        }
+    }
+
+    private final GenerationStream stream;
+    private final SseEmitter emitter;
+    private final Options options;
+    private final SseEventEncoder encoder = new SseEventEncoder();
+    private final ArrayDeque<StreamFrame> queue = new ArrayDeque<>();
+
+    private boolean accepting = true;
+    private boolean completing;
+    private boolean closed;
+    private boolean draining;
+    private long overflowSince;
+    private long lastSentId;
+    private Disposable drainRetry;
+
+    public SseSubscriber(GenerationStream stream, SseEmitter emitter, Options options) {
+        this.stream = stream;
+        this.emitter = emitter;
+        this.options = options;
+    }
+
+    /**
+     * 入队一帧实时事件
+     * 
+     * @return 订阅者仍可接收后续事件时返回true；已断开（包括因积压被断开）时返回false
+     */
+    public boolean offer(StreamFrame frame) {
+        synchronized (this) {
+            if (!accepting) {
+                return false;
+            }
+
+            if (queue.size() >= options.queueCapacity) {
+                handleOverflow(frame);
+            } else {
+                queue.addLast(frame);
+            }
+            options.metrics.recordQueueDepth(queue.size());
+        }
+        scheduleDrain();
+        return isAccepting();
+    }
+
+    /**
+     * 入队重放事件，不受队列容量限制
+     */
+    public void offerReplay(List<StreamFrame> frames) {
+        synchronized (this) {
+            if (!accepting || frames.isEmpty()) {
+                return;
+            }
+            queue.addAll(frames);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * 生成结束：发送完队列中的事件后完成连接
+     */
+    public void complete() {
+        synchronized (this) {
+            accepting = false;
+            completing = true;
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * 连接已由容器关闭（完成、超时或出错），丢弃未发送的事件
+     */
+    public synchronized void close() {
+        accepting = false;
+        closed = true;
+        queue.clear();
+    }
+
+    public synchronized boolean isAccepting() {
+        return accepting;
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * 队列已满时按策略处理新帧，调用方持有锁
+     */
+    private void handleOverflow(StreamFrame frame) {
+        long now = System.currentTimeMillis();
+        if (overflowSince == 0) {
+            overflowSince = now;
+        }
+        options.metrics.recordOverflow(options.policy);
+
+        boolean stalledTooLong = now - overflowSince > options.maxStallMillis;
+        if (options.policy == SlowConsumerPolicy.ABORT || stalledTooLong) {
+            abort(stalledTooLong ? "stalled" : "queue_full");
+            return;
+        }
+        if (!frame.isContent()) {
+            // 非正文事件（complete、error等）不能丢弃，允许超出容量
+            queue.addLast(frame);
+            return;
+        }
+
+        if (options.policy == SlowConsumerPolicy.COALESCE) {
+            coalesceTail(frame);
+        } else {
+            dropTail(frame);
+        }
+    }
+
+    /**
+     * 把队尾连续的正文帧与新帧合并为一帧
+     */
+    private void coalesceTail(StreamFrame frame) {
+        StringBuilder merged = new StringBuilder();
+        ArrayDeque<StreamFrame> run = new ArrayDeque<>();
+        while (!queue.isEmpty() && queue.peekLast().isContent()) {
+            run.addFirst(queue.pollLast());
+        }
+        for (StreamFrame queued : run) {
+            merged.append(queued.getContent());
+        }
+        merged.append(frame.getContent());
+
+        // 合并帧沿用最后一帧的事件ID和正文序号：事件ID只用作SSE的id字段，index仍与ai_chunk序号连续递增
+        String content = merged.toString();
+        queue.addLast(new StreamFrame(frame.getId(), frame.getEvent(),
+                encoder.chunk(content, frame.getIndex()), content, frame.getIndex()));
+    }
+
+    /**
+     * 丢弃积压的正文帧，用一个快照占位，发送时再生成截至该事件ID的完整正文
+     */
+    private void dropTail(StreamFrame frame) {
+        Iterator<StreamFrame> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            StreamFrame queued = iterator.next();
+            if (queued.isContent() || isSnapshotMarker(queued)) {
+                iterator.remove();
+            }
+        }
+        queue.addLast(new StreamFrame(frame.getId(), SNAPSHOT_EVENT, null));
+    }
+
+    /**
+     * 断开慢消费者：停止接收并丢弃积压的事件，只留一个 SLOW_CONSUMER 终止事件，调用方持有锁
+     * 
+     * <p>
+     * 发布线程不做任何发送。排空任务当前的发送返回后，尽力发送终止事件并完成连接。
+     * 客户端停止接收时，当前发送和终止事件的发送都会在容器的阻塞写超时（server.tomcat.connection-timeout）
+     * 后失败，排空任务随即移除该订阅者，不会长时间占用流式执行器线程。
+     * </p>
+     */
+    private void abort(String reason) {
+        log.warn("SSE订阅者接收过慢，断开连接: streamId={}, policy={}, reason={}",
+                stream.getStreamId(), options.policy.getCode(), reason);
+        options.metrics.recordSlowConsumerAborted(reason);
+        accepting = false;
+        completing = true;
+        queue.clear();
+        queue.addLast(new StreamFrame(0L, "error", SLOW_CONSUMER_ERROR));
+    }
+
+    private void scheduleDrain() {
+        synchronized (this) {
+            if (draining || closed) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            options.executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // 执行器已满：帧留在队列中，由下一次发布或重试定时器再次派发；调用方是发布线程，不能在此发送
+            synchronized (this) {
+                draining = false;
+                if (drainRetry == null && !closed) {
+                    drainRetry = Schedulers.parallel().schedule(this::retryDrain, DRAIN_RETRY_MILLIS,
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+            log.debug("执行器已满，稍后重试发送: streamId={}", stream.getStreamId());
+        }
+    }
+
+    private void retryDrain() {
+        synchronized (this) {
+            drainRetry = null;
+        }
+        scheduleDrain();
+    }
+
+    private void drain() {
+        while (true) {
+            StreamFrame frame;
+            synchronized (this) {
+                if (closed) {
+                    draining = false;
+                    return;
+                }
+                frame = queue.pollFirst();
+                if (frame == null) {
+                    draining = false;
+                    overflowSince = 0;
+                    if (!completing) {
+                        return;
+                    }
+                    closed = true;
+                }
+            }
+
+            if (frame == null) {
+                emitter.complete();
+                return;
+            }
+
+            if (isSnapshotMarker(frame)) {
+                frame = stream.snapshotFrame(frame.getId());
+            } else if (frame.isContent() && frame.getId() <= lastSentId) {
+                // 已包含在之前发送的快照中
+                continue;
+            }
+
+            long begin = System.nanoTime();
+            boolean sent = send(frame);
+            options.metrics.recordSendStall(System.nanoTime() - begin);
+
+            if (!sent) {
+                close();
+                stream.detach(this);
+                return;
+            }
+            if (frame.getId() > lastSentId) {
+                lastSentId = frame.getId();
+            }
+        }
+    }
+
+    private boolean send(StreamFrame frame) {
+        try {
+            SseEmitter.SseEventBuilder event = SseEmitter.event()
+                    .name(frame.getEvent())
+                    .data(frame.getData());
+            if (frame.getId() > 0) {
+                event.id(String.valueOf(frame.getId()));
+            }
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("发送事件失败，移除订阅者: streamId={}, eventId={}, error={}",
+                    stream.getStreamId(), frame.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isSnapshotMarker(StreamFrame frame) {
+        return SNAPSHOT_EVENT.equals(frame.getEvent()) && frame.getData() == null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.dreamer.chat.stream;
+
+/**
+ * 流式事件帧
+ * 
+ * <p>
+ * 一个已发出的SSE事件，携带单调递增的事件ID，用于断线重连时按 Last-Event-ID 重放。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public final class StreamFrame {
+
+    private final long id;
+    private final String event;
+    private final String data;
+    private final String content;
+    private final int index;
+
+    public StreamFrame(long id, String event, String data) {
+        this(id, event, data, null, 0);
+    }
+
+    /**
+     * 构造函数
+     * 
+     * @param id      事件ID
+     * @param event   事件名称
+     * @param data    事件数据（JSON）
+     * @param content 该帧携带的回复正文增量，非正文事件为null
+     * @param index   正文帧在ai_chunk事件中的序号，与事件ID相互独立；非正文事件为0
+     */
+    public StreamFrame(long id, String event, String data, String content, int index) {
+        this.id = id;
+        this.event = event;
+        this.data = data;
+        this.content = content;
+        this.index = index;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 是否为回复正文增量帧
+     */
+    public boolean isContent() {
+        return content != null;
+    }
+}
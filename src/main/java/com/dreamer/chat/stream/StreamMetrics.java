@@ -0,0 +1,126 @@
+package com.dreamer.chat.stream;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.dreamer.chat.enums.SlowConsumerPolicy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 流式输出指标
+ * 
+ * <p>
+ * 统一登记流式聊天相关的Micrometer指标，供流式服务和SSE订阅者上报。
+ * </p>
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@Component
+public class StreamMetrics {
+
+    private final Counter chunkCounter;
+    private final Counter frameCounter;
+    private final DistributionSummary framesPerSecond;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary cancelledChunks;
+    private final DistributionSummary queueDepth;
+    private final Timer sendStall;
+
+    @Autowired
+    public StreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.chunkCounter = Counter.builder("chat.stream.chunks")
+                .description("模型输出的原始数据块数")
+                .register(meterRegistry);
+        this.frameCounter = Counter.builder("chat.stream.frames")
+                .description("合并后实际发送的ai_chunk事件数")
+                .register(meterRegistry);
+        this.framesPerSecond = DistributionSummary.builder("chat.stream.frames.per.second")
+                .description("单次流式生成的有效帧率")
+                .baseUnit("frames/s")
+                .register(meterRegistry);
+        this.cancelledChunks = DistributionSummary.builder("chat.stream.cancelled.chunks")
+                .description("因客户端断开而取消的生成在取消前已输出的数据块数")
+                .register(meterRegistry);
+        this.queueDepth = DistributionSummary.builder("chat.stream.subscriber.queue.depth")
+                .description("SSE订阅者发送队列深度（入队时采样）")
+                .register(meterRegistry);
+        this.sendStall = Timer.builder("chat.stream.subscriber.send.stall")
+                .description("单次emitter.send阻塞时间")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次流式生成的帧统计
+     * 
+     * @param coalescer 本次生成使用的合并器
+     */
+    public void recordFrames(ChunkCoalescer coalescer) {
+        chunkCounter.increment(coalescer.getChunkCount());
+        frameCounter.increment(coalescer.getFrameCount());
+        framesPerSecond.record(coalescer.getFramesPerSecond());
+    }
+
+    /**
+     * 记录一次因客户端断开而取消的流式生成
+     * 
+     * <p>
+     * 只记录取消次数和取消前已输出的原始数据块数；数据块与Token、与 max_tokens 都不是同一单位，
+     * 节省量待模型返回用量后再据此推算。
+     * </p>
+     * 
+     * @param reason          断开原因（completed/timeout/error/send_failed）
+     * @param generatedChunks 取消前已生成的数据块数
+     */
+    public void recordCancelled(String reason, int generatedChunks) {
+        Counter.builder("chat.stream.cancelled")
+                .description("因客户端断开而取消的流式生成数")
+                .tag("reason", reason != null ? reason : "unknown")
+                .register(meterRegistry)
+                .increment();
+        cancelledChunks.record(generatedChunks);
+    }
+
+    /**
+     * 记录订阅者发送队列深度
+     */
+    public void recordQueueDepth(int depth) {
+        queueDepth.record(depth);
+    }
+
+    /**
+     * 记录单次发送的阻塞时间
+     */
+    public void recordSendStall(long nanos) {
+        sendStall.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次发送队列溢出
+     */
+    public void recordOverflow(SlowConsumerPolicy policy) {
+        Counter.builder("chat.stream.subscriber.overflow")
+                .description("SSE订阅者发送队列溢出次数")
+                .tag("policy", policy.getCode())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录一次因接收过慢被断开的订阅者
+     */
+    public void recordSlowConsumerAborted(String reason) {
+        Counter.builder("chat.stream.subscriber.aborted")
+                .description("因接收过慢被断开的SSE订阅者数")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,245 @@
+package com.dreamer.chat.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 字节级BPE分词器
+ *
+ * <p>
+ * 词表为tiktoken格式（每行"Base64编码的字节序列 空格 排名"，如 cl100k_base.tiktoken、千问的 qwen.tiktoken）。
+ * 文本先按预分词正则切分，每段的UTF-8字节在词表中直接命中则计1个Token，
+ * 否则按排名从低到高合并相邻字节对，剩余的片段数即Token数。只计数，不输出Token ID。
+ * 合并使用小顶堆和按字节区间查询的排名表，长片段（如整段无空格中文）也不会退化为平方复杂度。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class BpeTokenizer implements Tokenizer {
+
+    /**
+     * cl100k_base的预分词规则（千问词表使用相同规则）
+     */
+    private static final Pattern PRE_TOKENIZE = Pattern.compile(
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}"
+                    + "| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+
+    /**
+     * 字节序列到排名
+     */
+    private final RankTable ranks;
+
+    private BpeTokenizer(RankTable ranks) {
+        this.ranks = ranks;
+    }
+
+    /**
+     * 从tiktoken格式的词表加载
+     *
+     * @param vocabulary 词表输入流（由调用方关闭）
+     * @return 分词器
+     */
+    public static BpeTokenizer load(InputStream vocabulary) throws IOException {
+        List<byte[]> tokens = new ArrayList<>(200_000);
+        List<Integer> tokenRanks = new ArrayList<>(200_000);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(vocabulary, StandardCharsets.US_ASCII));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                continue;
+            }
+            tokens.add(Base64.getDecoder().decode(line.substring(0, space)));
+            tokenRanks.add(Integer.parseInt(line.substring(space + 1).trim()));
+        }
+
+        RankTable table = new RankTable(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            table.put(tokens.get(i), tokenRanks.get(i));
+        }
+        return new BpeTokenizer(table);
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        int tokens = 0;
+        Matcher matcher = PRE_TOKENIZE.matcher(text);
+        while (matcher.find()) {
+            byte[] piece = matcher.group().getBytes(StandardCharsets.UTF_8);
+            tokens += ranks.get(piece, 0, piece.length) >= 0 ? 1 : mergeCount(piece);
+        }
+        return tokens;
+    }
+
+    /**
+     * 按排名合并相邻片段，返回合并结束后的片段数
+     *
+     * <p>
+     * 片段以起始字节位置标识，用双向链表连接；候选合并（排名、左片段位置）放入小顶堆，每次取排名最低、
+     * 位置最靠左的一对，与逐轮扫描全部相邻对的结果相同。堆中的候选在片段合并后可能过期，
+     * 取出时按当前相邻片段重新查询排名校验。查询直接在字节数组区间上进行，不分配子串，
+     * 整段为 O(n log n)，不会因一段很长的无空格中文而退化为 O(n²)。
+     * </p>
+     */
+    private int mergeCount(byte[] piece) {
+        int n = piece.length;
+        int[] next = new int[n];
+        int[] prev = new int[n];
+        boolean[] merged = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            next[i] = i + 1;
+            prev[i] = i - 1;
+        }
+
+        MergeHeap heap = new MergeHeap(3 * n);
+        for (int i = 0; i + 1 < n; i++) {
+            heap.offer(ranks.get(piece, i, i + 2), i);
+        }
+
+        int parts = n;
+        while (!heap.isEmpty()) {
+            long candidate = heap.poll();
+            int rank = (int) (candidate >>> 32);
+            int left = (int) candidate;
+            int right = next[left];
+            if (merged[left] || right >= n || ranks.get(piece, left, next[right]) != rank) {
+                continue;
+            }
+
+            // 合并 left 与 right
+            merged[right] = true;
+            next[left] = next[right];
+            if (next[left] < n) {
+                prev[next[left]] = left;
+            }
+            parts--;
+
+            if (prev[left] >= 0) {
+                heap.offer(ranks.get(piece, prev[left], next[left]), prev[left]);
+            }
+            if (next[left] < n) {
+                heap.offer(ranks.get(piece, left, next[next[left]]), left);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * 字节序列到排名的开放寻址哈希表，按字节数组区间查询，不分配对象
+     */
+    private static final class RankTable {
+        private final byte[][] keys;
+        private final int[] values;
+        private final int mask;
+
+        RankTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+            keys = new byte[capacity][];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(byte[] key, int value) {
+            int slot = hash(key, 0, key.length) & mask;
+            while (keys[slot] != null && !Arrays.equals(keys[slot], key)) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        /**
+         * @return 排名，不在词表中时返回-1
+         */
+        int get(byte[] bytes, int from, int to) {
+            int slot = hash(bytes, from, to) & mask;
+            byte[] key;
+            while ((key = keys[slot]) != null) {
+                if (Arrays.equals(key, 0, key.length, bytes, from, to)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int hash(byte[] bytes, int from, int to) {
+            int h = 1;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + bytes[i];
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * 候选合并的小顶堆，元素为（排名 << 32 | 左片段位置），排名相同时位置小者优先
+     */
+    private static final class MergeHeap {
+        private long[] heap;
+        private int size;
+
+        MergeHeap(int capacity) {
+            heap = new long[Math.max(capacity, 1)];
+        }
+
+        void offer(int rank, int position) {
+            if (rank < 0) {
+                return;
+            }
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            long value = ((long) rank << 32) | position;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long poll() {
+            long result = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return result;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.dreamer.chat.tokenizer;
+
+/**
+ * 按字符类别估算Token数（默认分词器，未配置BPE词表时使用）
+ *
+ * <p>
+ * 中日韩字符按每字1个Token计算（主流中文词表约1~1.5字/Token，按1计算偏保守，避免超出模型上限）；
+ * 连续的字母数字按每4个字符1个Token；其他标点符号每个1个Token；空白不计。
+ * 中文为主的文本偏高估；代码、长数字串、非拉丁字母文本可能低估，
+ * 因此调用方按 {@link #isEstimate()} 在预算中预留余量（见 app.chat.tokenizer.estimate-margin-percent）。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public class EstimatingTokenizer implements Tokenizer {
+
+    private static final int CHARS_PER_WORD_TOKEN = 4;
+
+    @Override
+    public boolean isEstimate() {
+        return true;
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        int tokens = 0;
+        int wordChars = 0;
+        for (int i = 0; i < text.length();) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80 && Character.isLetterOrDigit(codePoint)) {
+                wordChars++;
+                continue;
+            }
+            tokens += wordTokens(wordChars);
+            wordChars = 0;
+            if (!Character.isWhitespace(codePoint)) {
+                tokens++;
+            }
+        }
+        return tokens + wordTokens(wordChars);
+    }
+
+    private static int wordTokens(int wordChars) {
+        return (wordChars + CHARS_PER_WORD_TOKEN - 1) / CHARS_PER_WORD_TOKEN;
+    }
+}
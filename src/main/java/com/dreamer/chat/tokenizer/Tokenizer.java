@@ -0,0 +1,26 @@
+package com.dreamer.chat.tokenizer;
+
+/**
+ * 本地分词器，用于在调用模型前估算文本的Token数
+ * 默认实现见 {@link com.dreamer.chat.config.TokenizerConfig}
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public interface Tokenizer {
+
+    /**
+     * 计算文本的Token数
+     *
+     * @param text 文本（可为空）
+     * @return Token数
+     */
+    int countTokens(CharSequence text);
+
+    /**
+     * 计数是否为估算值；估算时调用方应在Token预算中预留误差余量
+     */
+    default boolean isEstimate() {
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package com.dreamer.chat.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的提示词模板
+ *
+ * <p>
+ * 模板文本只解析一次，拆分为字面量和 {@code {{变量}}} 片段；渲染时按片段顺序单遍追加到调用方的
+ * StringBuilder，不再逐个变量 replace 或使用正则。变量规则与原实现一致：
+ * {@code {{current_time}}}、{@code {{current_date}}} 为内置变量且优先于自定义变量；
+ * 未提供值的自定义变量原样保留。需要在一天内保持不变的渲染结果（如缓存的系统提示词）可用
+ * {@link #renderDaily} 把内置时间变量都渲染为日期。实例不可变，可在线程间共享。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+public final class CompiledTemplate {
+
+    private static final String CURRENT_TIME = "current_time";
+    private static final String CURRENT_DATE = "current_date";
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /**
+     * 片段：variable 为空时 text 是字面量，否则 text 是变量的原始写法（未提供值时原样输出）
+     */
+    private record Segment(String text, String variable) {
+    }
+
+    private final Segment[] segments;
+    private final int literalLength;
+    private final boolean referencesCurrentTime;
+
+    private CompiledTemplate(Segment[] segments, int literalLength, boolean referencesCurrentTime) {
+        this.segments = segments;
+        this.literalLength = literalLength;
+        this.referencesCurrentTime = referencesCurrentTime;
+    }
+
+    /**
+     * 解析模板文本，变量写法为 {@code {{name}}}（name为不含 '}' 的非空字符串）
+     *
+     * @param text 模板文本
+     * @return 预编译模板
+     */
+    public static CompiledTemplate compile(String text) {
+        List<Segment> segments = new ArrayList<>();
+        int literalLength = 0;
+        int literalStart = 0;
+        boolean referencesCurrentTime = false;
+        int index = text.indexOf("{{");
+
+        while (index >= 0) {
+            int close = text.indexOf('}', index + 2);
+            if (close > index + 2 && text.startsWith("}}", close)) {
+                if (index > literalStart) {
+                    segments.add(new Segment(text.substring(literalStart, index), null));
+                    literalLength += index - literalStart;
+                }
+                String variable = text.substring(index + 2, close);
+                segments.add(new Segment(text.substring(index, close + 2), variable));
+                referencesCurrentTime |= CURRENT_TIME.equals(variable);
+                literalStart = close + 2;
+                index = text.indexOf("{{", literalStart);
+            } else {
+                index = text.indexOf("{{", index + 1);
+            }
+        }
+        if (literalStart < text.length()) {
+            segments.add(new Segment(text.substring(literalStart), null));
+            literalLength += text.length() - literalStart;
+        }
+
+        return new CompiledTemplate(segments.toArray(new Segment[0]), literalLength, referencesCurrentTime);
+    }
+
+    /**
+     * 渲染到指定的StringBuilder
+     *
+     * @param out       输出
+     * @param variables 自定义变量（可为空）
+     * @param now       内置时间变量使用的当前时间
+     */
+    public void renderTo(StringBuilder out, Map<String, String> variables, LocalDateTime now) {
+        render(out, variables, now, null);
+    }
+
+    /**
+     * 渲染到指定的StringBuilder，{@code {{current_time}}} 与 {@code {{current_date}}} 都输出为日期，
+     * 渲染结果在当天内不变
+     *
+     * @param out       输出
+     * @param variables 自定义变量（可为空）
+     * @param today     当前日期
+     */
+    public void renderDaily(StringBuilder out, Map<String, String> variables, LocalDate today) {
+        render(out, variables, null, today);
+    }
+
+    /**
+     * 是否引用了 {@code {{current_time}}}
+     */
+    public boolean referencesCurrentTime() {
+        return referencesCurrentTime;
+    }
+
+    private void render(StringBuilder out, Map<String, String> variables, LocalDateTime now, LocalDate today) {
+        for (Segment segment : segments) {
+            String variable = segment.variable();
+            if (variable == null) {
+                out.append(segment.text());
+            } else if (today != null && (CURRENT_TIME.equals(variable) || CURRENT_DATE.equals(variable))) {
+                DATE_FORMATTER.formatTo(today, out);
+            } else if (CURRENT_TIME.equals(variable)) {
+                TIME_FORMATTER.formatTo(now, out);
+            } else if (CURRENT_DATE.equals(variable)) {
+                DATE_FORMATTER.formatTo(now, out);
+            } else {
+                String value = variables != null ? variables.get(variable) : null;
+                out.append(value != null ? value : segment.text());
+            }
+        }
+    }
+
+    /**
+     * 字面量部分的总长度，用于预估输出大小
+     */
+    public int literalLength() {
+        return literalLength;
+    }
+}
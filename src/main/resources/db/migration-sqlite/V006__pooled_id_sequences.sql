@@ -0,0 +1,15 @@
+-- 主键改为由Hibernate序列生成器分配 (SQLite版本)
+-- SQLite不支持序列，Hibernate会退化为同名的单行表模拟序列（列名 next_val），
+-- 每次读取后将 next_val 增加50，配合pooled-lo优化器在内存中分配这一段ID
+
+CREATE TABLE conversations_id_seq (
+    next_val INTEGER NOT NULL
+);
+
+CREATE TABLE messages_id_seq (
+    next_val INTEGER NOT NULL
+);
+
+-- 从现有最大ID之后开始分配，避免与AUTOINCREMENT已生成的ID冲突
+INSERT INTO conversations_id_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM conversations;
+INSERT INTO messages_id_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM messages;
@@ -0,0 +1,19 @@
+-- 对话摘要列 (SQLite版本)
+ALTER TABLE conversations ADD COLUMN message_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE conversations ADD COLUMN last_message_at DATETIME;
+ALTER TABLE conversations ADD COLUMN last_message_preview VARCHAR(200);
+ALTER TABLE conversations ADD COLUMN total_tokens INTEGER NOT NULL DEFAULT 0;
+
+-- 回填已有对话
+UPDATE conversations
+SET message_count = (SELECT COUNT(*) FROM messages m WHERE m.conversation_id = conversations.id),
+    last_message_at = (SELECT MAX(m.timestamp) FROM messages m WHERE m.conversation_id = conversations.id),
+    total_tokens = (SELECT COALESCE(SUM(m.token_count), 0) FROM messages m WHERE m.conversation_id = conversations.id),
+    last_message_preview = (
+        SELECT substr(m.content, 1, 200) FROM messages m
+        WHERE m.conversation_id = conversations.id
+        ORDER BY m.sequence_number DESC LIMIT 1
+    );
+
+-- 列表查询（按用户、状态过滤，按更新时间倒序）可由一个索引完成
+CREATE INDEX idx_conversations_user_status_updated ON conversations(user_id, status, updated_time DESC);
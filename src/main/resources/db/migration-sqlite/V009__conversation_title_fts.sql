@@ -0,0 +1,25 @@
+-- 对话标题n-gram索引 (SQLite版本，替代PostgreSQL的pg_trgm)
+-- FTS5外部内容表，trigram分词按字符切分，适用于中文标题
+CREATE VIRTUAL TABLE conversations_title_fts USING fts5(
+    title,
+    content='conversations',
+    content_rowid='id',
+    tokenize='trigram'
+);
+
+-- 触发器保持索引与对话表同步
+CREATE TRIGGER conversations_title_fts_after_insert AFTER INSERT ON conversations BEGIN
+    INSERT INTO conversations_title_fts(rowid, title) VALUES (new.id, new.title);
+END;
+
+CREATE TRIGGER conversations_title_fts_after_delete AFTER DELETE ON conversations BEGIN
+    INSERT INTO conversations_title_fts(conversations_title_fts, rowid, title) VALUES ('delete', old.id, old.title);
+END;
+
+CREATE TRIGGER conversations_title_fts_after_update AFTER UPDATE OF title ON conversations BEGIN
+    INSERT INTO conversations_title_fts(conversations_title_fts, rowid, title) VALUES ('delete', old.id, old.title);
+    INSERT INTO conversations_title_fts(rowid, title) VALUES (new.id, new.title);
+END;
+
+-- 为已有对话建立索引
+INSERT INTO conversations_title_fts(conversations_title_fts) VALUES ('rebuild');
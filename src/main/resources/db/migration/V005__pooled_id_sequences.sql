@@ -0,0 +1,12 @@
+-- 主键改为由Hibernate序列生成器（pooled-lo优化器，allocationSize=50）分配
+-- IDENTITY主键会让Hibernate逐条插入并回读ID，无法使用JDBC批量插入；
+-- 改为序列后，应用每次 nextval 取回一段50个ID，在内存中依次使用
+
+-- 序列步长与实体映射的 allocationSize 保持一致，
+-- 否则启动时Hibernate会因步长不匹配报错
+ALTER SEQUENCE conversations_id_seq INCREMENT BY 50;
+ALTER SEQUENCE messages_id_seq INCREMENT BY 50;
+
+-- 列默认值仍保留 nextval，手工插入的数据同样从序列取号，不会与应用已分配的区间重叠
+COMMENT ON SEQUENCE conversations_id_seq IS '对话主键序列（步长50，pooled-lo）';
+COMMENT ON SEQUENCE messages_id_seq IS '消息主键序列（步长50，pooled-lo）';
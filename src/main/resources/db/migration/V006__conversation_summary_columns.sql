@@ -0,0 +1,34 @@
+-- 对话摘要列：列表页直接从 conversations 读取消息数和最后一条消息，不再访问 messages
+ALTER TABLE conversations ADD COLUMN message_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE conversations ADD COLUMN last_message_at TIMESTAMP;
+ALTER TABLE conversations ADD COLUMN last_message_preview VARCHAR(200);
+ALTER TABLE conversations ADD COLUMN total_tokens BIGINT NOT NULL DEFAULT 0;
+
+-- 回填已有对话
+UPDATE conversations c
+SET message_count = s.message_count,
+    last_message_at = s.last_message_at,
+    total_tokens = s.total_tokens
+FROM (
+    SELECT conversation_id,
+           COUNT(*) AS message_count,
+           MAX(timestamp) AS last_message_at,
+           COALESCE(SUM(token_count), 0) AS total_tokens
+    FROM messages
+    GROUP BY conversation_id
+) s
+WHERE s.conversation_id = c.id;
+
+UPDATE conversations c
+SET last_message_preview = LEFT(m.content, 200)
+FROM messages m
+WHERE m.conversation_id = c.id
+  AND m.sequence_number = (SELECT MAX(sequence_number) FROM messages WHERE conversation_id = c.id);
+
+-- 列表查询（按用户、状态过滤，按更新时间倒序）可由一个索引完成
+CREATE INDEX idx_conversations_user_status_updated ON conversations(user_id, status, updated_time DESC);
+
+COMMENT ON COLUMN conversations.message_count IS '消息数量（随消息增删增量维护）';
+COMMENT ON COLUMN conversations.last_message_at IS '最后一条消息的时间';
+COMMENT ON COLUMN conversations.last_message_preview IS '最后一条消息的预览（前200字符）';
+COMMENT ON COLUMN conversations.total_tokens IS '对话累计Token数';
@@ -0,0 +1,5 @@
+-- 对话标题trigram索引：包含匹配（ILIKE '%关键词%'）和 similarity 排序可使用索引，不再全表扫描
+-- 中文字符需数据库使用UTF-8编码且LC_CTYPE非C，pg_trgm才会将其视为单词字符生成trigram
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_conversations_title_trgm ON conversations USING gin (title gin_trgm_ops);
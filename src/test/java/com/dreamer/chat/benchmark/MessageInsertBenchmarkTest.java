@@ -0,0 +1,285 @@
+package com.dreamer.chat.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * 消息插入吞吐量基准测试
+ *
+ * <p>
+ * 分别在 db/migration（PostgreSQL）与 db/migration-sqlite（SQLite）迁移出的表结构上，
+ * 对比两种写入方式：
+ * <ul>
+ * <li>before：IDENTITY主键，逐条INSERT并回读生成的ID（Hibernate在IDENTITY下的行为）</li>
+ * <li>after：序列按50分段取号（pooled-lo），显式写入ID并使用JDBC批量插入</li>
+ * </ul>
+ * 每种方式都测量两种场景：每轮对话两条消息一个事务，以及批量导入。
+ * </p>
+ *
+ * <p>
+ * 默认不执行，运行方式：
+ * {@code mvn test -Dbenchmark=true -Dtest=MessageInsertBenchmarkTest}，
+ * PostgreSQL部分需要本机可用的Docker。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("消息插入吞吐量基准测试")
+public class MessageInsertBenchmarkTest {
+
+    private static final int TURNS = 2000;
+    private static final int IMPORT_ROWS = 20000;
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final String INSERT_WITHOUT_ID = "INSERT INTO messages "
+            + "(conversation_id, content, message_type, sequence_number, timestamp) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
+    private static final String INSERT_WITH_ID = "INSERT INTO messages "
+            + "(id, conversation_id, content, message_type, sequence_number, timestamp) VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    @Test
+    @DisplayName("SQLite：IDENTITY vs 序列+批量")
+    void sqlite() throws Exception {
+        Path file = Files.createTempFile("message-insert-benchmark", ".db");
+        String url = "jdbc:sqlite:" + file;
+        try {
+            Flyway.configure().dataSource(url, "", "").locations("classpath:db/migration-sqlite").load().migrate();
+            try (Connection connection = DriverManager.getConnection(url)) {
+                run("sqlite", connection, new SqliteIdBlocks(connection));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("PostgreSQL：IDENTITY vs 序列+批量")
+    void postgres() throws Exception {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker不可用，跳过PostgreSQL基准");
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")) {
+            postgres.start();
+            String url = postgres.getJdbcUrl() + "&reWriteBatchedInserts=true";
+            try (Connection connection = DriverManager.getConnection(url, postgres.getUsername(),
+                    postgres.getPassword());
+                    Statement statement = connection.createStatement()) {
+                // 官方镜像没有中文分词配置，用simple配置代替以执行V002中的全文索引
+                statement.execute("CREATE TEXT SEARCH CONFIGURATION chinese (COPY = simple)");
+            }
+            Flyway.configure().dataSource(url, postgres.getUsername(), postgres.getPassword())
+                    .locations("classpath:db/migration").load().migrate();
+            try (Connection connection = DriverManager.getConnection(url, postgres.getUsername(),
+                    postgres.getPassword())) {
+                run("postgresql", connection, new PostgresIdBlocks(connection));
+            }
+        }
+    }
+
+    private void run(String database, Connection connection, IdBlocks idBlocks) throws SQLException {
+        connection.setAutoCommit(false);
+
+        long beforeTurns = identityTurns(connection, createConversation(connection));
+        long afterTurns = batchedTurns(connection, createConversation(connection), idBlocks);
+        long beforeImport = identityImport(connection, createConversation(connection));
+        long afterImport = batchedImport(connection, createConversation(connection), idBlocks);
+
+        System.out.printf("%s turns  : before=%d rows/s, after=%d rows/s%n", database,
+                rowsPerSecond(TURNS * 2, beforeTurns), rowsPerSecond(TURNS * 2, afterTurns));
+        System.out.printf("%s import : before=%d rows/s, after=%d rows/s%n", database,
+                rowsPerSecond(IMPORT_ROWS, beforeImport), rowsPerSecond(IMPORT_ROWS, afterImport));
+
+        assertEquals(TURNS * 4 + IMPORT_ROWS * 2, countMessages(connection));
+    }
+
+    /**
+     * before：每轮两条消息，逐条插入并回读ID
+     */
+    private long identityTurns(Connection connection, long conversationId) throws SQLException {
+        long begin = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_WITHOUT_ID,
+                Statement.RETURN_GENERATED_KEYS)) {
+            int sequence = 0;
+            for (int turn = 0; turn < TURNS; turn++) {
+                for (int i = 0; i < 2; i++) {
+                    bindWithoutId(insert, conversationId, ++sequence);
+                    insert.executeUpdate();
+                    readGeneratedId(insert);
+                }
+                connection.commit();
+            }
+        }
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * after：每轮两条消息，ID来自内存中的号段，一次批量插入
+     */
+    private long batchedTurns(Connection connection, long conversationId, IdBlocks idBlocks) throws SQLException {
+        long begin = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_WITH_ID)) {
+            int sequence = 0;
+            for (int turn = 0; turn < TURNS; turn++) {
+                for (int i = 0; i < 2; i++) {
+                    bindWithId(insert, idBlocks.nextId(), conversationId, ++sequence);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private long identityImport(Connection connection, long conversationId) throws SQLException {
+        long begin = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_WITHOUT_ID,
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int sequence = 1; sequence <= IMPORT_ROWS; sequence++) {
+                bindWithoutId(insert, conversationId, sequence);
+                insert.executeUpdate();
+                readGeneratedId(insert);
+            }
+            connection.commit();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private long batchedImport(Connection connection, long conversationId, IdBlocks idBlocks) throws SQLException {
+        long begin = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_WITH_ID)) {
+            for (int sequence = 1; sequence <= IMPORT_ROWS; sequence++) {
+                bindWithId(insert, idBlocks.nextId(), conversationId, sequence);
+                insert.addBatch();
+                if (sequence % ALLOCATION_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private void bindWithoutId(PreparedStatement insert, long conversationId, int sequence) throws SQLException {
+        bindColumns(insert, 1, conversationId, sequence);
+    }
+
+    private void bindWithId(PreparedStatement insert, long id, long conversationId, int sequence)
+            throws SQLException {
+        insert.setLong(1, id);
+        bindColumns(insert, 2, conversationId, sequence);
+    }
+
+    private void bindColumns(PreparedStatement insert, int first, long conversationId, int sequence)
+            throws SQLException {
+        insert.setLong(first, conversationId);
+        insert.setString(first + 1, "benchmark message " + sequence);
+        insert.setString(first + 2, sequence % 2 == 1 ? "USER" : "ASSISTANT");
+        insert.setInt(first + 3, sequence);
+    }
+
+    private void readGeneratedId(PreparedStatement insert) throws SQLException {
+        try (ResultSet keys = insert.getGeneratedKeys()) {
+            keys.next();
+        }
+    }
+
+    private long createConversation(Connection connection) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO conversations (title, model_provider) VALUES ('benchmark', 'QIANWEN')",
+                Statement.RETURN_GENERATED_KEYS)) {
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                keys.next();
+                long id = keys.getLong(1);
+                connection.commit();
+                return id;
+            }
+        }
+    }
+
+    private long countMessages(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM messages")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private long rowsPerSecond(int rows, long nanos) {
+        return rows * 1_000_000_000L / Math.max(nanos, 1L);
+    }
+
+    /**
+     * 按pooled-lo方式分配的ID号段：每取一次号段可使用 ALLOCATION_SIZE 个ID
+     */
+    private abstract static class IdBlocks {
+        private long next;
+        private long limit;
+
+        long nextId() throws SQLException {
+            if (next >= limit) {
+                next = fetchBlockStart();
+                limit = next + ALLOCATION_SIZE;
+            }
+            return next++;
+        }
+
+        abstract long fetchBlockStart() throws SQLException;
+    }
+
+    private static final class PostgresIdBlocks extends IdBlocks {
+        private final Connection connection;
+
+        PostgresIdBlocks(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        long fetchBlockStart() throws SQLException {
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT nextval('messages_id_seq')")) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static final class SqliteIdBlocks extends IdBlocks {
+        private final Connection connection;
+
+        SqliteIdBlocks(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        long fetchBlockStart() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                long start;
+                try (ResultSet rs = statement.executeQuery("SELECT next_val FROM messages_id_seq")) {
+                    rs.next();
+                    start = rs.getLong(1);
+                }
+                statement.executeUpdate("UPDATE messages_id_seq SET next_val = " + (start + ALLOCATION_SIZE));
+                return start;
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.dreamer.chat.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.dreamer.chat.repository.MessageSearchRepository;
+import com.dreamer.chat.repository.PostgresMessageSearchRepository;
+import com.dreamer.chat.repository.SqliteMessageSearchRepository;
+
+/**
+ * 消息全文检索延迟基准测试
+ *
+ * <p>
+ * 在迁移出的表结构上写入 {@code -Dbenchmark.messages}（默认100万）条消息，
+ * 分布在 {@value #USERS} 个用户、每用户 {@value #CONVERSATIONS_PER_USER} 个对话中，
+ * 用与应用相同的检索实现对单个用户执行高频词、低频词和短词（SQLite下走LIKE退化路径）检索，
+ * 输出每页 {@value #PAGE_SIZE} 条时的 p50/p95/p99 延迟。
+ * </p>
+ *
+ * <p>
+ * 默认不执行，运行方式：
+ * {@code mvn test -Dbenchmark=true -Dtest=MessageSearchBenchmarkTest}，
+ * PostgreSQL部分需要本机可用的Docker；官方镜像没有中文分词，chinese配置以simple代替，
+ * 因此测试文本按空格分词。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("消息全文检索延迟基准测试")
+public class MessageSearchBenchmarkTest {
+
+    private static final int USERS = 100;
+    private static final int CONVERSATIONS_PER_USER = 100;
+    private static final int BATCH_SIZE = 1000;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+    private static final int PAGE_SIZE = 20;
+    private static final String USER_ID = "user-7";
+
+    private static final String[] WORDS = {
+            "数据库", "索引", "查询", "事务", "缓存", "模型", "提示词", "上下文", "对话", "接口",
+            "部署", "容器", "日志", "监控", "性能", "延迟", "吞吐", "分页", "序列", "批量",
+            "database", "index", "query", "cache", "latency", "stream", "token", "prompt"
+    };
+
+    /**
+     * 约万分之一的消息包含的低频词
+     */
+    private static final String RARE_WORD = "量子纠缠";
+
+    private static final String[] QUERIES = { "数据库", RARE_WORD, "latency", "缓存" };
+
+    @Test
+    @DisplayName("SQLite：FTS5 trigram")
+    void sqlite() throws Exception {
+        Path file = Files.createTempFile("message-search-benchmark", ".db");
+        String url = "jdbc:sqlite:" + file;
+        try {
+            Flyway.configure().dataSource(url, "", "").locations("classpath:db/migration-sqlite").load().migrate();
+            try (Connection connection = DriverManager.getConnection(url)) {
+                seed(connection);
+            }
+            run("sqlite", new SqliteMessageSearchRepository(template(url, "", "")));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("PostgreSQL：tsvector @@ tsquery")
+    void postgres() throws Exception {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker不可用，跳过PostgreSQL基准");
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")) {
+            postgres.start();
+            String url = postgres.getJdbcUrl() + "&reWriteBatchedInserts=true";
+            try (Connection connection = DriverManager.getConnection(url, postgres.getUsername(),
+                    postgres.getPassword());
+                    Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEXT SEARCH CONFIGURATION chinese (COPY = simple)");
+            }
+            Flyway.configure().dataSource(url, postgres.getUsername(), postgres.getPassword())
+                    .locations("classpath:db/migration").load().migrate();
+            try (Connection connection = DriverManager.getConnection(url, postgres.getUsername(),
+                    postgres.getPassword())) {
+                seed(connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("ANALYZE");
+                }
+            }
+            run("postgresql", new PostgresMessageSearchRepository(
+                    template(url, postgres.getUsername(), postgres.getPassword())));
+        }
+    }
+
+    private void run(String database, MessageSearchRepository repository) {
+        for (String query : QUERIES) {
+            for (int i = 0; i < WARMUP; i++) {
+                repository.search(USER_ID, query, 0, PAGE_SIZE);
+            }
+            long[] nanos = new long[ITERATIONS];
+            int hits = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long begin = System.nanoTime();
+                hits = repository.search(USER_ID, query, 0, PAGE_SIZE).size();
+                nanos[i] = System.nanoTime() - begin;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%s q=%-8s hits=%2d p50=%.2fms p95=%.2fms p99=%.2fms%n", database, query, hits,
+                    millis(nanos, 0.50), millis(nanos, 0.95), millis(nanos, 0.99));
+        }
+
+        assertFalse(repository.search(USER_ID, "数据库", 0, PAGE_SIZE).isEmpty());
+    }
+
+    private void seed(Connection connection) throws SQLException {
+        int messages = Integer.getInteger("benchmark.messages", 1_000_000);
+        int conversations = USERS * CONVERSATIONS_PER_USER;
+        int perConversation = Math.max(messages / conversations, 1);
+        Random random = new Random(42);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO conversations (id, title, model_provider, user_id, status) VALUES (?, ?, 'QIANWEN', ?, 'ACTIVE')")) {
+            for (int c = 1; c <= conversations; c++) {
+                insert.setLong(1, c);
+                insert.setString(2, "对话" + c);
+                insert.setString(3, "user-" + (c % USERS));
+                insert.addBatch();
+                if (c % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO messages "
+                + "(conversation_id, content, message_type, sequence_number, timestamp) VALUES (?, ?, ?, ?, ?)")) {
+            int pending = 0;
+            for (int c = 1; c <= conversations; c++) {
+                for (int sequence = 1; sequence <= perConversation; sequence++) {
+                    insert.setLong(1, c);
+                    insert.setString(2, content(random));
+                    insert.setString(3, sequence % 2 == 1 ? "USER" : "ASSISTANT");
+                    insert.setInt(4, sequence);
+                    insert.setTimestamp(5, now);
+                    insert.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        insert.executeBatch();
+                        connection.commit();
+                        pending = 0;
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private String content(Random random) {
+        int length = 8 + random.nextInt(32);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            content.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        if (random.nextInt(10_000) == 0) {
+            content.append(RARE_WORD);
+        }
+        return content.toString();
+    }
+
+    private NamedParameterJdbcTemplate template(String url, String username, String password) {
+        return new NamedParameterJdbcTemplate(new DriverManagerDataSource(url, username, password));
+    }
+
+    private double millis(long[] sortedNanos, double percentile) {
+        int index = Math.min(sortedNanos.length - 1, (int) Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[index] / 1_000_000.0;
+    }
+}
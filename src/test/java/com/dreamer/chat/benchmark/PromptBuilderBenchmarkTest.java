@@ -0,0 +1,164 @@
+package com.dreamer.chat.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dreamer.chat.dto.ContextMessage;
+import com.dreamer.chat.entity.PromptTemplate;
+import com.dreamer.chat.enums.MessageType;
+import com.dreamer.chat.enums.ModelProvider;
+import com.dreamer.chat.enums.PromptType;
+import com.dreamer.chat.service.PromptBuilderService;
+import com.dreamer.chat.service.PromptHistoryCache;
+import com.dreamer.chat.service.PromptTemplateService;
+import com.dreamer.chat.tokenizer.EstimatingTokenizer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Prompt构建JMH基准测试
+ *
+ * <p>
+ * 测量不同历史消息条数下 {@link PromptBuilderService#buildPrompt} 的耗时（buildPromptCached 为历史块缓存命中时）；
+ * 另以原先的多次 replace + 正则替换实现作为基线，对比单独渲染系统提示词的耗时。
+ * </p>
+ *
+ * <p>
+ * 默认不执行，运行方式：
+ * {@code mvn test -Dbenchmark=true -Dtest=PromptBuilderBenchmarkTest}。
+ * surefire默认通过manifest jar传递classpath，JMH子进程无法加载测试类，因此在当前JVM内运行（forks=0）。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PromptBuilderBenchmarkTest {
+
+    private static final String SYSTEM_PROMPT = "你是一个专业、友好的AI助手，名字是{{assistant_name}}。"
+            + "当前日期：{{current_date}}，当前时间：{{current_time}}。请使用{{language}}回答{{user_name}}的问题，"
+            + "回答要准确、简洁，必要时给出示例。对于不确定的内容请明确说明，不要编造事实。";
+
+    private static final Long CONVERSATION_ID = 1L;
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{([^}]+)\\}\\}");
+
+    @Param({ "0", "10", "50", "200" })
+    public int historySize;
+
+    private PromptBuilderService promptBuilderService;
+    private PromptTemplate template;
+    private List<ContextMessage> history;
+    private Map<String, String> variables;
+
+    @Setup
+    public void setUp() {
+        template = new PromptTemplate("benchmark", ModelProvider.QIANWEN, PromptType.CHAT);
+        template.setSystemPrompt(SYSTEM_PROMPT);
+        template.setConversationStarter("你好，{{user_name}}！有什么可以帮你的吗？");
+        template.setUserPrefix("用户：");
+        template.setAssistantPrefix("助手：");
+        template.setMaxContextLength(1_000_000);
+
+        PromptTemplateService templateService = new PromptTemplateService() {
+            @Override
+            public Optional<PromptTemplate> getBestTemplate(ModelProvider modelProvider, PromptType promptType) {
+                return Optional.of(template);
+            }
+        };
+        promptBuilderService = new PromptBuilderService();
+        ReflectionTestUtils.setField(promptBuilderService, "promptTemplateService", templateService);
+        ReflectionTestUtils.setField(promptBuilderService, "tokenizer", new EstimatingTokenizer());
+        ReflectionTestUtils.setField(promptBuilderService, "defaultMaxTokens", 2000);
+        ReflectionTestUtils.setField(promptBuilderService, "promptHistoryCache",
+                new PromptHistoryCache(new SimpleMeterRegistry(), 1 << 20, 30));
+
+        history = new ArrayList<>(historySize);
+        for (int i = 1; i <= historySize; i++) {
+            MessageType type = i % 2 == 1 ? MessageType.USER : MessageType.ASSISTANT;
+            history.add(new ContextMessage((long) i, type, "第" + i + "条消息：" + "上下文内容".repeat(40), i));
+        }
+        variables = Map.of("assistant_name", "Dreamer", "language", "中文", "user_name", "张三");
+    }
+
+    @Benchmark
+    public String buildPrompt() {
+        return promptBuilderService.buildPrompt(ModelProvider.QIANWEN, PromptType.CHAT, history,
+                "请帮我总结一下上面的讨论", variables);
+    }
+
+    @Benchmark
+    public String buildPromptCached() {
+        return promptBuilderService.buildPrompt(CONVERSATION_ID, ModelProvider.QIANWEN, PromptType.CHAT, history,
+                "请帮我总结一下上面的讨论", variables);
+    }
+
+    @Benchmark
+    public String renderSystemPrompt() {
+        StringBuilder out = new StringBuilder(SYSTEM_PROMPT.length() + 32);
+        template.compiledSystemPrompt().renderTo(out, variables, LocalDateTime.now());
+        return out.toString();
+    }
+
+    /**
+     * 基线：原 replaceVariables 的实现
+     */
+    @Benchmark
+    public String renderSystemPromptLegacy() {
+        LocalDateTime now = LocalDateTime.now();
+        String result = SYSTEM_PROMPT;
+        result = result.replace("{{current_time}}",
+                now.format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+        result = result.replace("{{current_date}}",
+                now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+        Matcher matcher = VARIABLE_PATTERN.matcher(result);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            String replacement = variables.getOrDefault(matcher.group(1), matcher.group(0));
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Prompt构建JMH基准")
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(PromptBuilderBenchmarkTest.class.getName() + "\\.")
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+        new Runner(options).run();
+    }
+}
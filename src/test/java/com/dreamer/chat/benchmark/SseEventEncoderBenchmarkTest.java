@@ -0,0 +1,92 @@
+package com.dreamer.chat.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.dreamer.chat.stream.SseEventEncoder;
+import com.dreamer.chat.util.JsonUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * ai_chunk事件序列化JMH基准测试
+ *
+ * <p>
+ * 对比 {@link JsonUtils#createSseEventData} 与 {@link SseEventEncoder} 编码ai_chunk事件的耗时，
+ * 每事件分配字节数由GC profiler给出（gc.alloc.rate.norm）；另校验两者输出的JSON语义一致。
+ * </p>
+ *
+ * <p>
+ * 默认不执行基准，运行方式：
+ * {@code mvn test -Dbenchmark=true -Dtest=SseEventEncoderBenchmarkTest}。
+ * 与 {@link PromptBuilderBenchmarkTest} 相同，在当前JVM内运行（forks=0）。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SseEventEncoderBenchmarkTest {
+
+    private static final String[] CHUNKS = {
+            "Hello", "，世界", " \"quoted\"", "line\nbreak", "tab\tchar", "```java\nint x = 1;\n```"
+    };
+
+    private final SseEventEncoder encoder = new SseEventEncoder();
+    private int index;
+
+    @Benchmark
+    public String jsonUtils() {
+        int i = index++;
+        return JsonUtils.createSseEventData("chunk", CHUNKS[i % CHUNKS.length], "index", i);
+    }
+
+    @Benchmark
+    public String encoder() {
+        int i = index++;
+        return encoder.chunk(CHUNKS[i % CHUNKS.length], i);
+    }
+
+    @Test
+    @DisplayName("两种编码输出的JSON语义一致")
+    void encodersProduceSameJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < CHUNKS.length; i++) {
+            assertEquals(mapper.readTree(JsonUtils.createSseEventData("chunk", CHUNKS[i], "index", i)),
+                    mapper.readTree(encoder.chunk(CHUNKS[i], i)));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("SSE事件编码JMH基准")
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SseEventEncoderBenchmarkTest.class.getName() + "\\.")
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
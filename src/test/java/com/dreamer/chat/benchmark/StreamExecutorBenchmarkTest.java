@@ -0,0 +1,155 @@
+package com.dreamer.chat.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 平台线程与虚拟线程执行器的并发流基准测试
+ *
+ * <p>
+ * 使用桩模型（固定首包延迟 + 固定出字间隔的Flux）模拟同步阻塞调用模型的链路
+ * （send-sync 以及 test-stream 使用的 blockLast 模式），
+ * 对比两种执行器下的最大并发流数和首包时间（TTFT）p99。
+ * </p>
+ *
+ * <p>
+ * 默认不执行，运行方式：
+ * {@code mvn -Pjava21 test -Dbenchmark=true -Dtest=StreamExecutorBenchmarkTest}
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@DisplayName("流式执行器并发基准测试")
+public class StreamExecutorBenchmarkTest {
+
+    private static final int STREAM_COUNT = 2000;
+    private static final Duration FIRST_TOKEN_DELAY = Duration.ofMillis(300);
+    private static final Duration TOKEN_INTERVAL = Duration.ofMillis(20);
+    private static final int TOKENS_PER_STREAM = 100;
+
+    @Test
+    @DisplayName("平台线程池 vs 虚拟线程")
+    void comparePlatformAndVirtualThreads() throws Exception {
+        ThreadPoolTaskExecutor platform = new ThreadPoolTaskExecutor();
+        platform.setCorePoolSize(16);
+        platform.setMaxPoolSize(64);
+        platform.setQueueCapacity(STREAM_COUNT);
+        platform.setThreadNamePrefix("bench-platform-");
+        platform.initialize();
+
+        SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("bench-vt-");
+        virtual.setVirtualThreads(true);
+
+        try {
+            BenchmarkResult platformResult = run(platform);
+            BenchmarkResult virtualResult = run(virtual);
+
+            System.out.println("platform: " + platformResult);
+            System.out.println("virtual : " + virtualResult);
+
+            assertEquals(STREAM_COUNT, platformResult.completed);
+            assertEquals(STREAM_COUNT, virtualResult.completed);
+        } finally {
+            platform.shutdown();
+            virtual.close();
+        }
+    }
+
+    /**
+     * 在指定执行器上并发运行所有桩流
+     */
+    private BenchmarkResult run(AsyncTaskExecutor executor) throws InterruptedException {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        List<Long> ttftMillis = Collections.synchronizedList(new ArrayList<>(STREAM_COUNT));
+        CountDownLatch done = new CountDownLatch(STREAM_COUNT);
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < STREAM_COUNT; i++) {
+            long submittedAt = System.nanoTime();
+            executor.execute(() -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    long[] firstToken = { 0L };
+                    stubProvider()
+                            .doOnNext(token -> {
+                                if (firstToken[0] == 0L) {
+                                    firstToken[0] = System.nanoTime();
+                                }
+                            })
+                            .blockLast();
+                    ttftMillis.add(TimeUnit.NANOSECONDS.toMillis(firstToken[0] - submittedAt));
+                    completed.incrementAndGet();
+                } finally {
+                    active.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await(10, TimeUnit.MINUTES);
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        List<Long> sorted = new ArrayList<>(ttftMillis);
+        Collections.sort(sorted);
+        long p99 = sorted.isEmpty() ? -1 : sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+
+        return new BenchmarkResult(maxActive.get(), p99, completed.get(), totalMillis);
+    }
+
+    /**
+     * 桩模型：首包延迟后按固定间隔输出Token
+     */
+    private Flux<String> stubProvider() {
+        return Flux.interval(FIRST_TOKEN_DELAY, TOKEN_INTERVAL)
+                .take(TOKENS_PER_STREAM)
+                .map(i -> "token" + i);
+    }
+
+    /**
+     * 基准测试结果
+     */
+    private static final class BenchmarkResult {
+        private final int maxConcurrentStreams;
+        private final long p99TtftMillis;
+        private final int completed;
+        private final long totalMillis;
+
+        BenchmarkResult(int maxConcurrentStreams, long p99TtftMillis, int completed, long totalMillis) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            this.p99TtftMillis = p99TtftMillis;
+            this.completed = completed;
+            this.totalMillis = totalMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "maxConcurrentStreams=" + maxConcurrentStreams +
+                    ", p99TTFT=" + p99TtftMillis + "ms" +
+                    ", completed=" + completed +
+                    ", total=" + totalMillis + "ms";
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 
 import com.dreamer.chat.repository.*;
 import com.dreamer.chat.service.*;
+import com.dreamer.chat.stream.SseHeartbeatWheel;
 
 /**
  * 测试配置类
@@ -38,6 +39,9 @@ public class TestConfig {
     @MockBean
     private ChatService chatService;
 
+    @MockBean
+    private SseHeartbeatWheel sseHeartbeatWheel;
+
     /**
      * 创建Mock的ChatClient用于测试
      */
@@ -18,6 +18,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.dreamer.chat.service.*;
+import com.dreamer.chat.stream.SseHeartbeatWheel;
 
 /**
  * 简化的聊天控制器测试
@@ -48,6 +49,9 @@ public class SimpleChatControllerTest {
     @MockBean
     private StreamChatService streamChatService;
 
+    @MockBean
+    private SseHeartbeatWheel sseHeartbeatWheel;
+
     @BeforeEach
     public void setUp() {
         // Mock StreamChatService behavior
@@ -0,0 +1,102 @@
+package com.dreamer.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import com.dreamer.chat.dto.ContextMessage;
+import com.dreamer.chat.entity.Message;
+import com.dreamer.chat.enums.MessageType;
+import com.dreamer.chat.repository.MessageRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 对话上下文缓存测试
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("对话上下文缓存测试")
+public class ConversationContextCacheTest {
+
+    private static final Long CONVERSATION_ID = 1L;
+    private static final int WINDOW_SIZE = 3;
+
+    private MessageRepository messageRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ConversationContextCache cache;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        // 数据库中已有序号1、2两条消息（查询按序号倒序返回）
+        when(messageRepository.findRecentContext(eq(CONVERSATION_ID), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(context(2), context(1))));
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ConversationContextCache(messageRepository, meterRegistry, WINDOW_SIZE, 100, 30);
+    }
+
+    @Test
+    @DisplayName("写穿追加后不再查询数据库，窗口保持升序和固定大小")
+    void appendWritesThroughWithoutReloading() {
+        assertEquals(List.of(1, 2), sequences(cache.getWindow(CONVERSATION_ID)));
+
+        cache.append(CONVERSATION_ID, List.of(message(3), message(4)));
+
+        assertEquals(List.of(2, 3, 4), sequences(cache.getWindow(CONVERSATION_ID)));
+        verify(messageRepository, times(1)).findRecentContext(eq(CONVERSATION_ID), any(Pageable.class));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("加载结果已包含的消息不会重复追加，乱序写入按序号插入")
+    void appendIgnoresDuplicatesAndKeepsOrder() {
+        cache.getWindow(CONVERSATION_ID);
+
+        cache.append(CONVERSATION_ID, List.of(message(2)));
+        cache.append(CONVERSATION_ID, List.of(message(4)));
+        cache.append(CONVERSATION_ID, List.of(message(3)));
+
+        assertEquals(List.of(2, 3, 4), sequences(cache.getWindow(CONVERSATION_ID)));
+    }
+
+    @Test
+    @DisplayName("未缓存的对话不写穿，失效后重新加载")
+    void invalidateForcesReload() {
+        cache.append(CONVERSATION_ID, List.of(message(3)));
+        assertEquals(List.of(1, 2), sequences(cache.getWindow(CONVERSATION_ID)));
+
+        cache.invalidate(CONVERSATION_ID);
+        cache.getWindow(CONVERSATION_ID);
+
+        verify(messageRepository, times(2)).findRecentContext(eq(CONVERSATION_ID), any(Pageable.class));
+    }
+
+    private static ContextMessage context(int sequence) {
+        return new ContextMessage((long) sequence, MessageType.USER, "message " + sequence, sequence);
+    }
+
+    private static Message message(int sequence) {
+        Message message = new Message("message " + sequence, MessageType.ASSISTANT);
+        message.setId((long) sequence);
+        message.setSequenceNumber(sequence);
+        return message;
+    }
+
+    private static List<Integer> sequences(List<ContextMessage> window) {
+        return window.stream().map(ContextMessage::getSequenceNumber).toList();
+    }
+}
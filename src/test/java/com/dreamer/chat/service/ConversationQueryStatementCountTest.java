@@ -0,0 +1,160 @@
+package com.dreamer.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import com.dreamer.chat.dto.ConversationSummary;
+import com.dreamer.chat.dto.MessagePage;
+import com.dreamer.chat.entity.Conversation;
+import com.dreamer.chat.entity.Message;
+import com.dreamer.chat.enums.MessageType;
+import com.dreamer.chat.enums.ModelProvider;
+import com.dreamer.chat.repository.ConversationSearchRepository;
+import com.dreamer.chat.repository.MessageSearchRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * 对话与消息读接口的SQL语句数测试
+ * 通过Hibernate统计信息断言各读接口使用的语句数，防止懒加载关联带来N+1查询
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:statement_count_test?mode=memory&cache=shared",
+        "spring.datasource.driver-class-name=org.sqlite.JDBC",
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.community.dialect.SQLiteDialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.flyway.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ConversationService.class)
+@DisplayName("读接口SQL语句数测试")
+public class ConversationQueryStatementCountTest {
+
+    private static final String USER_ID = "statement-user";
+    private static final int CONVERSATIONS = 3;
+    private static final int MESSAGES_PER_CONVERSATION = 8;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private ConversationContextCache contextCache;
+
+    @MockBean
+    private MessageSearchRepository messageSearchRepository;
+
+    @MockBean
+    private ConversationSearchRepository conversationSearchRepository;
+
+    private Long conversationId;
+
+    @BeforeEach
+    void setUp() {
+        for (int c = 0; c < CONVERSATIONS; c++) {
+            Conversation conversation = new Conversation("对话" + c, ModelProvider.QIANWEN, null);
+            conversation.setUserId(USER_ID);
+            entityManager.persist(conversation);
+            for (int i = 1; i <= MESSAGES_PER_CONVERSATION; i++) {
+                Message message = new Message("消息" + i, i % 2 == 1 ? MessageType.USER : MessageType.ASSISTANT);
+                message.setSequenceNumber(i);
+                message.setTimestamp(LocalDateTime.now());
+                conversation.addMessage(message);
+                entityManager.persist(message);
+            }
+            conversationId = conversation.getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("GET /conversations/user/{userId}：1条语句")
+    void userConversations() {
+        assertStatements(1, () -> conversationService.getUserConversations(USER_ID));
+    }
+
+    @Test
+    @DisplayName("GET /conversations/user/{userId}/active：1条语句（首页不足一页时不统计总数）")
+    void activeConversations() {
+        assertStatements(1, () -> conversationService.getUserActiveConversations(USER_ID, 0, 20));
+    }
+
+    @Test
+    @DisplayName("GET /conversations/user/{userId}/recent：1条语句")
+    void recentConversations() {
+        assertStatements(1, () -> conversationService.getRecentConversations(USER_ID, 10));
+    }
+
+    @Test
+    @DisplayName("GET /conversations/search（关键词为空）：1条语句")
+    void searchConversationsWithoutKeyword() {
+        assertStatements(1, () -> conversationService.searchConversationsByTitle(USER_ID, "", 0, 20));
+    }
+
+    @Test
+    @DisplayName("GET /conversations/{id}：对话摘要和最新一页消息共2条语句")
+    void conversationDetail() {
+        ConversationService.ConversationDetail detail = assertStatements(2,
+                () -> conversationService.getConversationDetail(conversationId, USER_ID));
+
+        ConversationSummary summary = detail.getConversation();
+        assertEquals(conversationId, summary.getId());
+        assertEquals(MESSAGES_PER_CONVERSATION, detail.getMessages().size());
+    }
+
+    @Test
+    @DisplayName("GET /chat/history/{id}?before=：1条语句")
+    void historyPage() {
+        MessagePage page = assertStatements(1,
+                () -> conversationService.getMessagePage(conversationId, 5, null, 2));
+
+        assertEquals(2, page.getSize());
+        assertEquals(3, page.getBeforeCursor());
+        assertEquals(true, page.isHasMore());
+    }
+
+    @Test
+    @DisplayName("GET /chat/history/{id}/delta：1条语句")
+    void historyDelta() {
+        MessagePage page = assertStatements(1,
+                () -> conversationService.getMessagePage(conversationId, null, 6, null));
+
+        assertEquals(2, page.getSize());
+        assertEquals(MESSAGES_PER_CONVERSATION, page.getAfterCursor());
+    }
+
+    private <T> T assertStatements(long expected, Supplier<T> call) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        T result = call.get();
+
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL语句数");
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package com.dreamer.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.dreamer.chat.repository.MessageRepository;
+
+/**
+ * 消息序号分配器测试
+ * 使用内存中的唯一索引模拟 idx_messages_conversation_sequence
+ * 
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("消息序号分配器测试")
+public class MessageSequenceAllocatorTest {
+
+    private static final int THREADS = 16;
+    private static final int CONVERSATIONS = 4;
+    private static final int SENDS_PER_THREAD = 250;
+
+    /**
+     * 模拟的唯一索引：对话ID -> 已使用的序号
+     */
+    private final Map<Long, Set<Integer>> uniqueIndex = new ConcurrentHashMap<>();
+    private final AtomicInteger duplicateKeyFailures = new AtomicInteger();
+
+    private MessageSequenceAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findMaxSequenceNumberByConversationId(anyLong())).thenAnswer(invocation -> {
+            Set<Integer> used = uniqueIndex.get(invocation.<Long>getArgument(0));
+            return used == null || used.isEmpty() ? 0 : used.stream().mapToInt(Integer::intValue).max().getAsInt();
+        });
+        allocator = new MessageSequenceAllocator(messageRepository, 1000, 30);
+    }
+
+    @Test
+    @DisplayName("并发发送不产生重复序号")
+    void parallelSendsProduceNoDuplicateKeyFailures() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                long conversationId = t % CONVERSATIONS + 1;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < SENDS_PER_THREAD; i++) {
+                            allocator.allocateAndSave(conversationId, sequence -> insert(conversationId, sequence));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            assertTrue(done.await(30, TimeUnit.SECONDS), "并发发送应在超时前完成");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, duplicateKeyFailures.get(), "不应出现唯一索引冲突");
+
+        int perConversation = THREADS / CONVERSATIONS * SENDS_PER_THREAD;
+        for (long conversationId = 1; conversationId <= CONVERSATIONS; conversationId++) {
+            Set<Integer> used = uniqueIndex.get(conversationId);
+            assertEquals(perConversation, used.size(), "每个对话的消息数应正确");
+            for (int sequence = 1; sequence <= perConversation; sequence++) {
+                assertTrue(used.contains(sequence), "序号应连续: " + sequence);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("序号冲突后重新初始化并重试")
+    void reseedsAfterCollisionWithExternalWriter() {
+        long conversationId = 1L;
+        for (int sequence = 1; sequence <= 5; sequence++) {
+            insert(conversationId, sequence);
+        }
+
+        assertEquals(6, (int) allocator.allocateAndSave(conversationId, sequence -> insert(conversationId, sequence)));
+
+        // 模拟另一个实例写入了序号7和8
+        insert(conversationId, 7);
+        insert(conversationId, 8);
+
+        int sequence = allocator.allocateAndSave(conversationId, next -> insert(conversationId, next));
+
+        assertEquals(9, sequence, "冲突后应从数据库最大序号重新分配");
+        assertEquals(1, duplicateKeyFailures.get(), "应只发生一次冲突");
+    }
+
+    /**
+     * 模拟插入消息，序号重复时抛出唯一索引冲突异常
+     */
+    private int insert(long conversationId, int sequence) {
+        Set<Integer> used = uniqueIndex.computeIfAbsent(conversationId, id -> ConcurrentHashMap.newKeySet());
+        if (!used.add(sequence)) {
+            duplicateKeyFailures.incrementAndGet();
+            throw new DataIntegrityViolationException(
+                    "duplicate key value violates unique constraint \"idx_messages_conversation_sequence\"");
+        }
+        return sequence;
+    }
+}
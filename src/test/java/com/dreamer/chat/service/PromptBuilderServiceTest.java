@@ -0,0 +1,169 @@
+package com.dreamer.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dreamer.chat.dto.ContextMessage;
+import com.dreamer.chat.entity.PromptTemplate;
+import com.dreamer.chat.enums.MessageType;
+import com.dreamer.chat.enums.ModelProvider;
+import com.dreamer.chat.enums.PromptType;
+import com.dreamer.chat.tokenizer.EstimatingTokenizer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 结构化提示词构建测试
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("结构化提示词构建测试")
+public class PromptBuilderServiceTest {
+
+    private static final String TIME = "\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private PromptTemplate template;
+    private SystemPromptCache systemPromptCache;
+    private PromptBuilderService promptBuilderService;
+
+    @BeforeEach
+    void setUp() {
+        template = new PromptTemplate("structured", ModelProvider.DEEPSEEK, PromptType.CHAT);
+        template.setId(1L);
+        template.setSystemPrompt("你是{{assistant_name}}，当前时间：{{current_time}}");
+        template.setConversationStarter("你好！");
+
+        PromptTemplateService templateService = new PromptTemplateService() {
+            @Override
+            public Optional<PromptTemplate> getBestTemplate(ModelProvider modelProvider, PromptType promptType) {
+                return Optional.of(template);
+            }
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        promptBuilderService = new PromptBuilderService();
+        ReflectionTestUtils.setField(promptBuilderService, "promptTemplateService", templateService);
+        ReflectionTestUtils.setField(promptBuilderService, "tokenizer", new EstimatingTokenizer());
+        ReflectionTestUtils.setField(promptBuilderService, "defaultMaxTokens", 2000);
+        systemPromptCache = new SystemPromptCache(meterRegistry, 100, 30);
+        ReflectionTestUtils.setField(promptBuilderService, "systemPromptCache", systemPromptCache);
+        ReflectionTestUtils.setField(promptBuilderService, "promptMetrics", new PromptMetrics(meterRegistry));
+    }
+
+    @Test
+    @DisplayName("相邻两轮请求的前缀逐字节相同，本轮时间只出现在最后一条用户消息中")
+    void consecutiveTurnsShareStablePrefix() throws InterruptedException {
+        List<ContextMessage> history = history(2);
+        List<String> first = build(history, "第二个问题");
+
+        // 下一轮：上一轮的提问和回复已保存，时间已变化
+        Thread.sleep(1100);
+        history.add(new ContextMessage(3L, MessageType.USER, "第二个问题", 3));
+        history.add(new ContextMessage(4L, MessageType.ASSISTANT, "回答", 4));
+        List<String> second = build(history, "第三个问题");
+
+        assertEquals(List.of("SYSTEM", "USER", "ASSISTANT", "USER"), roles(first));
+        // 缓存的系统提示词中时间变量渲染为当天日期
+        assertTrue(first.get(0).matches("SYSTEM:你是Dreamer，当前时间：\\d{4}-\\d{2}-\\d{2}"));
+        int prefixSize = first.size() - 1;
+        assertEquals(first.subList(0, prefixSize), second.subList(0, prefixSize));
+        assertEquals(List.of("USER:第二个问题", "ASSISTANT:回答"), second.subList(prefixSize, prefixSize + 2));
+        assertTrue(second.get(second.size() - 1).matches("USER:\\[当前时间：" + TIME + "]\n第三个问题"));
+        assertEquals(2.0, meterRegistry.get("chat.prompt.prefix.tokens").summary().count());
+    }
+
+    @Test
+    @DisplayName("当前提问已在历史末尾时不重复发送，首轮附带开场白")
+    void currentMessageIsNotRepeated() {
+        List<ContextMessage> history = new ArrayList<>();
+        history.add(ContextMessage.pending(MessageType.USER, "第一个问题"));
+
+        List<String> messages = build(history, "第一个问题");
+
+        assertEquals(List.of("SYSTEM", "ASSISTANT", "USER"), roles(messages));
+        assertEquals("ASSISTANT:你好！", messages.get(1));
+        assertTrue(messages.get(2).matches("USER:\\[当前时间：" + TIME + "]\n第一个问题"));
+    }
+
+    @Test
+    @DisplayName("系统提示词只取决于模板和变量，所有对话共享同一份缓存")
+    void systemPromptIsSharedAcrossConversations() {
+        Map<String, String> variables = Map.of("assistant_name", "Dreamer");
+
+        assertSame(systemPromptCache.get(template, variables),
+                systemPromptCache.get(template, Map.of("assistant_name", "Dreamer")));
+        assertNotEquals(systemPromptCache.get(template, variables),
+                systemPromptCache.get(template, Map.of("assistant_name", "Other")));
+    }
+
+    @Test
+    @DisplayName("估算分词器按余量比例缩小历史消息预算")
+    void estimateMarginShrinksHistoryBudget() {
+        // 输入窗口只剩300个Token，历史消息放不下
+        ReflectionTestUtils.setField(promptBuilderService, "defaultMaxTokens",
+                ModelProvider.DEEPSEEK.getContextWindow() - 300);
+        List<ContextMessage> history = history(100);
+
+        int withoutMargin = build(history, "问题").size();
+        ReflectionTestUtils.setField(promptBuilderService, "estimateMarginPercent", 50);
+        int withMargin = build(history, "问题").size();
+
+        assertTrue(withoutMargin < history.size());
+        assertTrue(withMargin < withoutMargin);
+    }
+
+    @Test
+    @DisplayName("没有模板时历史消息同样按Token预算选择")
+    void historyIsBudgetedWithoutTemplate() {
+        ReflectionTestUtils.setField(promptBuilderService, "promptTemplateService", new PromptTemplateService() {
+            @Override
+            public Optional<PromptTemplate> getBestTemplate(ModelProvider modelProvider, PromptType promptType) {
+                return Optional.empty();
+            }
+        });
+        ReflectionTestUtils.setField(promptBuilderService, "defaultMaxTokens",
+                ModelProvider.DEEPSEEK.getContextWindow() - 300);
+
+        String prompt = promptBuilderService.buildPrompt(ModelProvider.DEEPSEEK, PromptType.CHAT, history(100),
+                "问题", Map.of());
+
+        assertFalse(prompt.contains("用户：消息1\n"));
+        assertTrue(prompt.contains("助手：消息100\n"));
+        assertTrue(prompt.endsWith("用户：问题\n助手："));
+    }
+
+    private List<String> build(List<ContextMessage> history, String currentMessage) {
+        List<Message> messages = promptBuilderService.buildMessages(ModelProvider.DEEPSEEK,
+                PromptType.CHAT, history, currentMessage, Map.of("assistant_name", "Dreamer"));
+        return messages.stream().map(message -> message.getMessageType().name() + ":" + message.getContent())
+                .toList();
+    }
+
+    private static List<String> roles(List<String> messages) {
+        return messages.stream().map(message -> message.substring(0, message.indexOf(':'))).toList();
+    }
+
+    private static List<ContextMessage> history(int size) {
+        List<ContextMessage> history = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            MessageType type = i % 2 == 1 ? MessageType.USER : MessageType.ASSISTANT;
+            history.add(new ContextMessage((long) i, type, "消息" + i, i));
+        }
+        return history;
+    }
+}
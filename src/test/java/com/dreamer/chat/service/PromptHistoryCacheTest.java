@@ -0,0 +1,107 @@
+package com.dreamer.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.dreamer.chat.dto.ContextMessage;
+import com.dreamer.chat.enums.MessageType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 提示词历史块缓存测试
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("提示词历史块缓存测试")
+public class PromptHistoryCacheTest {
+
+    private static final Long CONVERSATION_ID = 1L;
+    private static final String USER = "用户：";
+    private static final String ASSISTANT = "助手：";
+
+    private SimpleMeterRegistry meterRegistry;
+    private PromptHistoryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PromptHistoryCache(meterRegistry, 1 << 20, 30);
+    }
+
+    @Test
+    @DisplayName("追加新消息和窗口滑动时复用已渲染的部分，结果与完整渲染一致")
+    void reusesRenderedPrefixOnAppendAndSlide() {
+        assertEquals(expected(messages(1, 4)), render(CONVERSATION_ID, messages(1, 4)));
+        assertEquals(expected(messages(1, 4)), render(CONVERSATION_ID, messages(1, 4)));
+        assertEquals(expected(messages(1, 6)), render(CONVERSATION_ID, messages(1, 6)));
+        assertEquals(expected(messages(3, 8)), render(CONVERSATION_ID, messages(3, 8)));
+
+        assertEquals(1.0, lookups("miss"));
+        assertEquals(1.0, lookups("hit"));
+        assertEquals(2.0, lookups("partial"));
+    }
+
+    @Test
+    @DisplayName("未保存的消息不进入缓存，每轮单独追加")
+    void pendingMessagesAreNotCached() {
+        List<ContextMessage> withPending = messages(1, 2);
+        withPending.add(ContextMessage.pending(MessageType.USER, "本轮提问"));
+
+        assertEquals(expected(withPending), render(CONVERSATION_ID, withPending));
+        assertEquals(expected(messages(1, 2)), render(CONVERSATION_ID, messages(1, 2)));
+
+        assertEquals(1.0, lookups("hit"));
+    }
+
+    @Test
+    @DisplayName("角色前缀变化或历史不连续时重建")
+    void rebuildsWhenPrefixChangesOrHistoryDiverges() {
+        render(CONVERSATION_ID, messages(1, 4));
+
+        StringBuilder out = new StringBuilder();
+        cache.appendTo(out, CONVERSATION_ID, messages(1, 4), "User:", "Assistant:");
+        assertEquals("User: message 1\nAssistant: message 2\nUser: message 3\nAssistant: message 4\n",
+                out.toString());
+
+        // 历史被清空后重新开始
+        assertEquals(expected(messages(9, 10)), render(CONVERSATION_ID, messages(9, 10)));
+
+        assertEquals(3.0, lookups("miss"));
+    }
+
+    private String render(Long conversationId, List<ContextMessage> messages) {
+        StringBuilder out = new StringBuilder();
+        cache.appendTo(out, conversationId, messages, USER, ASSISTANT);
+        return out.toString();
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("chat.prompt.history.lookups").tag("result", result).counter().count();
+    }
+
+    private static List<ContextMessage> messages(int from, int to) {
+        List<ContextMessage> messages = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            MessageType type = i % 2 == 1 ? MessageType.USER : MessageType.ASSISTANT;
+            messages.add(new ContextMessage((long) i, type, "message " + i, i));
+        }
+        return messages;
+    }
+
+    private static String expected(List<ContextMessage> messages) {
+        StringBuilder builder = new StringBuilder();
+        for (ContextMessage message : messages) {
+            String prefix = message.getMessageType() == MessageType.USER ? USER : ASSISTANT;
+            builder.append(prefix).append(' ').append(message.getContent()).append('\n');
+        }
+        return builder.toString();
+    }
+}
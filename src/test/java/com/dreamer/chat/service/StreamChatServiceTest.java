@@ -0,0 +1,233 @@
+package com.dreamer.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.dreamer.chat.config.AiModelConfig;
+import com.dreamer.chat.dto.ChatRequest;
+import com.dreamer.chat.entity.Conversation;
+import com.dreamer.chat.entity.Message;
+import com.dreamer.chat.enums.MessageType;
+import com.dreamer.chat.enums.ModelProvider;
+import com.dreamer.chat.enums.PromptType;
+import com.dreamer.chat.enums.SlowConsumerPolicy;
+import com.dreamer.chat.stream.GenerationRegistry;
+import com.dreamer.chat.stream.GenerationStream;
+import com.dreamer.chat.stream.SseSubscriber;
+import com.dreamer.chat.stream.StreamMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 流式聊天服务测试
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("流式聊天服务测试")
+public class StreamChatServiceTest {
+
+    private ThreadPoolExecutor executor;
+    private SimpleMeterRegistry meterRegistry;
+    private ChatService chatService;
+    private GenerationRegistry generationRegistry;
+    private GenerationStream stream;
+    private Sinks.Many<String> upstream;
+    private Conversation conversation;
+    private ConversationService conversationService;
+    private StreamChatService streamChatService;
+
+    @BeforeEach
+    void setUp() {
+        // 单线程、无队列：线程被占用时立即拒绝，与有界流式执行器满载时的行为一致
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                new ThreadPoolExecutor.AbortPolicy());
+        meterRegistry = new SimpleMeterRegistry();
+        StreamMetrics streamMetrics = new StreamMetrics(meterRegistry);
+
+        conversation = new Conversation("测试对话", ModelProvider.QIANWEN, null);
+        conversation.setId(1L);
+        Message userMessage = new Message("你好", MessageType.USER);
+        userMessage.setId(10L);
+        Message assistantMessage = new Message("你好！", MessageType.ASSISTANT);
+        assistantMessage.setId(11L);
+
+        chatService = mock(ChatService.class);
+        when(chatService.validateAndGetModelProvider(any())).thenReturn(ModelProvider.QIANWEN);
+        when(chatService.getOrCreateConversation(any(), any())).thenReturn(conversation);
+        when(chatService.saveUserMessage(any(), anyString())).thenReturn(userMessage);
+        when(chatService.getConversationContext(any())).thenReturn(List.of());
+        when(chatService.buildVariablesFromContext(any())).thenReturn(Map.of());
+        when(chatService.saveAssistantMessage(any(), anyString())).thenReturn(assistantMessage);
+
+        PromptBuilderService promptBuilderService = mock(PromptBuilderService.class);
+        when(promptBuilderService.detectPromptType(any())).thenReturn(PromptType.CHAT);
+        when(promptBuilderService.buildModelPrompt(any(), any(), any(), any(), any(), any()))
+                .thenReturn(new Prompt("你好"));
+
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+        ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+        when(chatClient.prompt(any(Prompt.class)).stream().content()).thenReturn(upstream.asFlux());
+        AiModelConfig.ChatClientManager chatClientManager = mock(AiModelConfig.ChatClientManager.class);
+        when(chatClientManager.getChatClient(any())).thenReturn(chatClient);
+
+        // 订阅者在当前线程发送，排除订阅者排空任务对执行器的占用
+        stream = new GenerationStream("stream-1", 64, 30_000,
+                new SseSubscriber.Options(16, SlowConsumerPolicy.COALESCE, 30_000, Runnable::run, streamMetrics));
+        generationRegistry = mock(GenerationRegistry.class);
+        when(generationRegistry.create()).thenReturn(stream);
+
+        conversationService = mock(ConversationService.class);
+        when(conversationService.getConversationByIdAndUserId(1L, "owner")).thenReturn(Optional.of(conversation));
+        when(conversationService.getConversationByIdAndUserId(1L, "other")).thenReturn(Optional.empty());
+
+        streamChatService = new StreamChatService();
+        ReflectionTestUtils.setField(streamChatService, "chatService", chatService);
+        ReflectionTestUtils.setField(streamChatService, "conversationService", conversationService);
+        ReflectionTestUtils.setField(streamChatService, "chatClientManager", chatClientManager);
+        ReflectionTestUtils.setField(streamChatService, "promptBuilderService", promptBuilderService);
+        ReflectionTestUtils.setField(streamChatService, "streamChatExecutor", executor);
+        ReflectionTestUtils.setField(streamChatService, "streamMetrics", streamMetrics);
+        ReflectionTestUtils.setField(streamChatService, "generationRegistry", generationRegistry);
+        ReflectionTestUtils.setField(streamChatService, "coalesceMaxBytes", 64);
+        ReflectionTestUtils.setField(streamChatService, "coalesceMaxDelayMs", 30L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("生成过程中执行器被占满：完成阶段在当前线程执行，回复被保存且流正常结束")
+    void completesWhenExecutorSaturatedMidGeneration() throws Exception {
+        streamChatService.processStreamChatAsync(new ChatRequest("你好", "qianwen"), new SseEmitter(0L));
+        while (upstream.currentSubscriberCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        // 占满执行器（准备阶段的线程可能尚未归还，被拒绝时重试）
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch busy = new CountDownLatch(1);
+        Runnable blocker = () -> {
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        while (busy.getCount() > 0) {
+            try {
+                executor.execute(blocker);
+                busy.await();
+            } catch (RejectedExecutionException e) {
+                Thread.sleep(10);
+            }
+        }
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+
+        try {
+            upstream.tryEmitNext("你好！");
+            upstream.tryEmitComplete();
+
+            verify(chatService).saveAssistantMessage(eq(conversation), eq("你好！"));
+            verify(generationRegistry).complete(stream);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("生成中触发取消信号：走取消路径保存部分回复，不发送complete事件，按原因记录取消")
+    void cancelSignalDuringGenerationTakesCancelledPath() throws Exception {
+        CompletableFuture<Void> future = streamChatService.processStreamChatAsync(
+                new ChatRequest("你好", "qianwen"), new SseEmitter(0L));
+        while (upstream.currentSubscriberCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        upstream.tryEmitNext("你好");
+        stream.getCancelSignal().fire("abandoned");
+        future.get(5, TimeUnit.SECONDS);
+
+        verify(chatService).saveAssistantMessage(eq(conversation), eq("你好"));
+        verify(generationRegistry).complete(stream);
+        assertEquals(1.0, meterRegistry.get("chat.stream.cancelled").tag("reason", "abandoned").counter().count());
+
+        RecordingEmitter observer = new RecordingEmitter();
+        stream.attach(observer, 0L);
+        assertFalse(observer.events.contains("complete"));
+    }
+
+    @Test
+    @DisplayName("观察对话流：只有对话所有者可以接入")
+    void observeRequiresOwnership() {
+        when(generationRegistry.findByConversation(1L)).thenReturn(Optional.of(stream));
+
+        streamChatService.observeConversation(1L, "other", new SseEmitter(0L));
+        verify(generationRegistry, never()).findByConversation(1L);
+
+        streamChatService.observeConversation(1L, "owner", new SseEmitter(0L));
+        verify(generationRegistry).findByConversation(1L);
+    }
+
+    /**
+     * 记录事件名称的SseEmitter
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+
+        RecordingEmitter() {
+            super(0L);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            for (DataWithMediaType item : builder.build()) {
+                String text = String.valueOf(item.getData());
+                if (text.startsWith("event:")) {
+                    events.add(text.substring(6, text.indexOf('\n')));
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+        }
+    }
+}
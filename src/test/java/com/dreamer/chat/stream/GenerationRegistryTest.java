@@ -0,0 +1,67 @@
+package com.dreamer.chat.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 流式生成注册表测试
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("流式生成注册表测试")
+public class GenerationRegistryTest {
+
+    private GenerationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        registry = new GenerationRegistry(meterRegistry);
+        ReflectionTestUtils.setField(registry, "replayCapacity", 16);
+        ReflectionTestUtils.setField(registry, "retentionSeconds", 300L);
+        ReflectionTestUtils.setField(registry, "graceSeconds", 30L);
+        ReflectionTestUtils.setField(registry, "maxGenerationSeconds", 600L);
+        ReflectionTestUtils.setField(registry, "subscriberQueueCapacity", 16);
+        ReflectionTestUtils.setField(registry, "slowConsumerPolicy", "coalesce");
+        ReflectionTestUtils.setField(registry, "maxStallMillis", 30_000L);
+        ReflectionTestUtils.setField(registry, "streamChatExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(registry, "streamMetrics", new StreamMetrics(meterRegistry));
+    }
+
+    @Test
+    @DisplayName("超过最大生成时长仍未结束的生成被取消并结束")
+    void expiresGenerationWithoutTerminalEvent() {
+        GenerationStream stream = registry.create();
+        registry.bindConversation(stream, 1L);
+
+        registry.expire(stream);
+
+        assertTrue(stream.isCompleted());
+        assertEquals("expired", stream.getCancelSignal().getReason());
+        // 与正常结束一样保留到保留期后再移除
+        assertTrue(registry.find(stream.getStreamId()).isPresent());
+        assertTrue(registry.findByConversation(1L).isPresent());
+    }
+
+    @Test
+    @DisplayName("已正常结束的生成不受过期任务影响")
+    void completedGenerationIsNotExpired() {
+        GenerationStream stream = registry.create();
+        registry.complete(stream);
+
+        registry.expire(stream);
+
+        assertFalse(stream.getCancelSignal().isDisconnected());
+    }
+}
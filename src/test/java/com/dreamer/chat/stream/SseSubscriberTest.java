@@ -0,0 +1,247 @@
+package com.dreamer.chat.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.dreamer.chat.enums.SlowConsumerPolicy;
+import com.dreamer.chat.util.SseTestUtils;
+import com.dreamer.chat.util.SseTestUtils.SseEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * SSE订阅者测试
+ *
+ * <p>
+ * 客户端接收阻塞时，发布线程只入队不发送；各慢消费者策略下客户端最终看到的正文与生成的正文一致。
+ * </p>
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("SSE订阅者测试")
+public class SseSubscriberTest {
+
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int CHUNKS = 20;
+    private static final Duration PUBLISH_LIMIT = Duration.ofSeconds(2);
+
+    private final SseEventEncoder encoder = new SseEventEncoder();
+    private ThreadPoolExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("ABORT：积压满时丢弃积压事件，当前发送返回后只发送SLOW_CONSUMER终止事件并结束连接")
+    void abortSendsTerminalEventAfterInFlightSend() throws Exception {
+        BlockingEmitter emitter = new BlockingEmitter();
+        GenerationStream stream = newStream(SlowConsumerPolicy.ABORT, emitter);
+
+        publishWhileBlocked(stream, emitter);
+        assertEquals(0, stream.getSubscriberCount());
+
+        emitter.release.countDown();
+        assertTrue(emitter.finished.await(5, TimeUnit.SECONDS));
+        assertNull(emitter.error);
+        List<SseEvent> events = emitter.events();
+        assertEquals(List.of("start", "error"), events.stream().map(SseEvent::getName).toList());
+        assertEquals("SLOW_CONSUMER", SseTestUtils.getEventDataField(events.get(1), "code"));
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("DROP：丢弃积压的正文帧，客户端以快照补齐后正文完整")
+    void dropReplacesBacklogWithSnapshot() throws Exception {
+        BlockingEmitter emitter = new BlockingEmitter();
+        GenerationStream stream = newStream(SlowConsumerPolicy.DROP, emitter);
+
+        publishWhileBlocked(stream, emitter);
+        stream.complete();
+
+        emitter.release.countDown();
+        assertTrue(emitter.finished.await(5, TimeUnit.SECONDS));
+        assertNull(emitter.error);
+        List<SseEvent> events = emitter.events();
+        assertTrue(events.stream().anyMatch(event -> "ai_snapshot".equals(event.getName())));
+        assertEquals(fullText(), render(events));
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("COALESCE：合并积压的正文帧，index沿用正文序号而非事件ID")
+    void coalesceMergesBacklogKeepingIndex() throws Exception {
+        BlockingEmitter emitter = new BlockingEmitter();
+        GenerationStream stream = newStream(SlowConsumerPolicy.COALESCE, emitter);
+
+        publishWhileBlocked(stream, emitter);
+        stream.complete();
+
+        emitter.release.countDown();
+        assertTrue(emitter.finished.await(5, TimeUnit.SECONDS));
+        assertNull(emitter.error);
+        List<SseEvent> chunks = SseTestUtils.findEventsByName(emitter.events(), "ai_chunk");
+        assertTrue(chunks.size() < CHUNKS);
+        assertEquals(fullText(), render(chunks));
+        for (SseEvent chunk : chunks) {
+            // start事件占用了事件ID 1，正文序号比事件ID小1
+            int index = SseTestUtils.getEventDataAsJson(chunk).get("index").asInt();
+            assertEquals(Long.parseLong(chunk.getId()) - 1, index);
+        }
+        assertEquals(String.valueOf(CHUNKS),
+                SseTestUtils.getEventDataField(chunks.get(chunks.size() - 1), "index"));
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("执行器已满：帧保留在队列中，不在发布线程中发送，执行器空闲后送达")
+    void rejectedDrainIsRetriedOffPublisherThread() throws Exception {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        executor.execute(() -> {
+            busy.countDown();
+            awaitQuietly(unblock);
+        });
+        busy.await();
+
+        BlockingEmitter emitter = new BlockingEmitter();
+        emitter.release.countDown();
+        GenerationStream stream = new GenerationStream("stream-1", 64, 30_000, new SseSubscriber.Options(
+                QUEUE_CAPACITY, SlowConsumerPolicy.COALESCE, 30_000, executor,
+                new StreamMetrics(new SimpleMeterRegistry())));
+        stream.attach(emitter, 0L);
+
+        for (int i = 1; i <= 3; i++) {
+            publishChunk(stream, i);
+        }
+        assertEquals(1, emitter.sending.getCount());
+
+        unblock.countDown();
+        stream.complete();
+        assertTrue(emitter.finished.await(5, TimeUnit.SECONDS));
+        assertEquals("c1c2c3", render(emitter.events()));
+    }
+
+    private GenerationStream newStream(SlowConsumerPolicy policy, BlockingEmitter emitter) {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        GenerationStream stream = new GenerationStream("stream-1", 64, 30_000, new SseSubscriber.Options(
+                QUEUE_CAPACITY, policy, 30_000, executor, new StreamMetrics(new SimpleMeterRegistry())));
+        stream.attach(emitter, 0L);
+        return stream;
+    }
+
+    /**
+     * 先发布start事件让排空任务阻塞在发送上，再发布全部正文帧，发布过程不得被阻塞
+     */
+    private void publishWhileBlocked(GenerationStream stream, BlockingEmitter emitter) throws InterruptedException {
+        stream.publish("start", "{}");
+        emitter.sending.await();
+        assertTimeoutPreemptively(PUBLISH_LIMIT, () -> {
+            for (int i = 1; i <= CHUNKS; i++) {
+                publishChunk(stream, i);
+            }
+        });
+    }
+
+    private void publishChunk(GenerationStream stream, int index) {
+        String text = "c" + index;
+        stream.publishContent("ai_chunk", encoder.chunk(text, index), text, index);
+    }
+
+    private static String fullText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= CHUNKS; i++) {
+            text.append('c').append(i);
+        }
+        return text.toString();
+    }
+
+    /**
+     * 按客户端的处理方式还原正文：ai_chunk追加，ai_snapshot替换
+     */
+    private static String render(List<SseEvent> events) {
+        StringBuilder text = new StringBuilder();
+        for (SseEvent event : events) {
+            if ("ai_chunk".equals(event.getName())) {
+                text.append(SseTestUtils.getEventDataField(event, "chunk"));
+            } else if ("ai_snapshot".equals(event.getName())) {
+                text.setLength(0);
+                text.append(SseTestUtils.getEventDataField(event, "content"));
+            }
+        }
+        return text.toString();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 发送阻塞到release为止的SseEmitter
+     * 与ResponseBodyEmitter一致，发送与结束连接共用同一把锁
+     */
+    private static final class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final StringBuilder sent = new StringBuilder();
+        private volatile Throwable error;
+
+        BlockingEmitter() {
+            super(0L);
+        }
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            awaitQuietly(release);
+            if (finished.getCount() == 0) {
+                throw new IllegalStateException("连接已结束");
+            }
+            for (DataWithMediaType item : builder.build()) {
+                sent.append(item.getData());
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            finished.countDown();
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            error = ex;
+            finished.countDown();
+        }
+
+        synchronized List<SseEvent> events() {
+            return SseTestUtils.parseSseResponse(sent.toString());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.dreamer.chat.tokenizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * 本地分词器测试
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("本地分词器测试")
+public class TokenizerTest {
+
+    @Test
+    @DisplayName("估算：中文每字1个Token，英文单词每4个字符1个Token，空白不计")
+    void estimating() {
+        Tokenizer tokenizer = new EstimatingTokenizer();
+
+        assertEquals(0, tokenizer.countTokens(null));
+        assertEquals(4, tokenizer.countTokens("你好世界"));
+        assertEquals(4, tokenizer.countTokens("hello world"));
+        assertEquals(6, tokenizer.countTokens("数据库 index！"));
+    }
+
+    @Test
+    @DisplayName("BPE：整段命中词表计1个Token，否则按排名合并字节对")
+    void bytePairMerge() throws Exception {
+        // 单字节 a、b、c、空格，合并 ab（排名低于 bc）、abc
+        String vocabulary = String.join("\n",
+                entry("a", 0), entry("b", 1), entry("c", 2), entry(" ", 3),
+                entry("ab", 4), entry("bc", 5), entry("abc", 6));
+        Tokenizer tokenizer = BpeTokenizer.load(
+                new ByteArrayInputStream(vocabulary.getBytes(StandardCharsets.US_ASCII)));
+
+        assertEquals(1, tokenizer.countTokens("abc"));
+        // "abcb"：ab → abc，剩余 b
+        assertEquals(2, tokenizer.countTokens("abcb"));
+        // 预分词为 "abc" 与 " cab"：后者合并为 " "、"c"、"ab"
+        assertEquals(4, tokenizer.countTokens("abc cab"));
+    }
+
+    @Test
+    @Timeout(5)
+    @DisplayName("BPE：很长的无空格片段按堆合并，结果与逐对合并一致")
+    void longPieceMerge() throws Exception {
+        String vocabulary = String.join("\n", entry("a", 0), entry("b", 1), entry("ab", 2), entry("abab", 3));
+        Tokenizer tokenizer = BpeTokenizer.load(
+                new ByteArrayInputStream(vocabulary.getBytes(StandardCharsets.US_ASCII)));
+
+        // 预分词后为一整段 20000 字节：先合并为 ab，再两两合并为 abab
+        assertEquals(5000, tokenizer.countTokens("ab".repeat(10000)));
+        assertEquals(5001, tokenizer.countTokens("ab".repeat(10000) + "a"));
+    }
+
+    private static String entry(String token, int rank) {
+        return Base64.getEncoder().encodeToString(token.getBytes(StandardCharsets.UTF_8)) + " " + rank;
+    }
+}
@@ -0,0 +1,66 @@
+package com.dreamer.chat.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 预编译模板测试
+ *
+ * @author panshenguo
+ * @since 1.0.0
+ */
+@DisplayName("预编译模板测试")
+public class CompiledTemplateTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 5, 9, 7, 30);
+
+    @Test
+    @DisplayName("内置变量和自定义变量单遍替换，未提供的变量原样保留")
+    void rendersVariables() {
+        CompiledTemplate template = CompiledTemplate.compile(
+                "{{current_date}} {{current_time}} 你好，{{user_name}}，{{unknown}}");
+
+        assertEquals("2024-03-05 09:07:30 你好，张三，{{unknown}}",
+                render(template, Map.of("user_name", "张三", "current_time", "ignored")));
+    }
+
+    @Test
+    @DisplayName("按天渲染：时间变量都输出为日期，渲染结果当天不变")
+    void rendersDaily() {
+        CompiledTemplate template = CompiledTemplate.compile("日期{{current_date}} 时间{{current_time}} {{user_name}}");
+        StringBuilder out = new StringBuilder();
+        template.renderDaily(out, Map.of("user_name", "张三"), NOW.toLocalDate());
+
+        assertEquals("日期2024-03-05 时间2024-03-05 张三", out.toString());
+        assertTrue(template.referencesCurrentTime());
+        assertFalse(CompiledTemplate.compile("{{current_date}} {{user_name}}").referencesCurrentTime());
+    }
+
+    @Test
+    @DisplayName("不完整的变量写法按字面量输出")
+    void keepsMalformedPlaceholders() {
+        CompiledTemplate template = CompiledTemplate.compile("a {{}} b {{x} c {{y}}");
+
+        assertEquals("a {{}} b {{x} c Y", render(template, Map.of("y", "Y")));
+        assertEquals("a {{}} b {{x} c {{y}}", render(template, null));
+    }
+
+    @Test
+    @DisplayName("字面量长度不含变量片段")
+    void literalLength() {
+        assertEquals(4, CompiledTemplate.compile("ab{{x}}cd").literalLength());
+    }
+
+    private static String render(CompiledTemplate template, Map<String, String> variables) {
+        StringBuilder out = new StringBuilder();
+        template.renderTo(out, variables, NOW);
+        return out.toString();
+    }
+}